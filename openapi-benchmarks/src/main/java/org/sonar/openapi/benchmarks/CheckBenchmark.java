@@ -0,0 +1,73 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.openapi.api.OpenApiCheck;
+import org.sonar.plugins.openapi.api.PreciseIssue;
+
+/**
+ * Run of each check of {@link org.sonar.openapi.checks.CheckList} on its own over a parsed contract.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CheckBenchmark extends ContractState {
+  @Param({
+    "PathMaskeradingCheck",
+    "MediaTypeCheck",
+    "ParsingErrorCheck",
+    "DefaultResponseCheck",
+    "DefinedResponseCheck",
+    "DeclaredTagCheck",
+    "DocumentedTagCheck",
+    "AtMostOneBodyParameterCheck",
+    "NoUnusedDefinitionCheck",
+    "NoContentIn204Check",
+    "ProvideOpSummaryCheck",
+    "ContactValidEmailCheck",
+    "DescriptionDiffersSummaryCheck"
+  })
+  public String check;
+
+  private OpenApiCheck instance;
+
+  @Setup
+  public void createCheck() throws ReflectiveOperationException {
+    instance = (OpenApiCheck) Class.forName("org.sonar.openapi.checks." + check).newInstance();
+  }
+
+  @Benchmark
+  public List<PreciseIssue> scanFile() {
+    return instance.scanFileForIssues(context);
+  }
+}
@@ -0,0 +1,203 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+/**
+ * Generates valid OpenAPI contracts of arbitrary size, so that benchmarks do not depend on real-world contracts.
+ * <p>
+ * Each path holds up to 7 operations, each operation has a summary, a description, tags, a path parameter and a body or
+ * query parameter, and refers to one of the schemas in its responses. Schemas refer to each other in a chain. Every
+ * other path is a templated path, so that {@code PathMaskerading} has work to do, and every path carries a comment.
+ */
+public final class ContractGenerator {
+  private static final String[] METHODS = {"get", "put", "post", "delete", "patch", "head", "options"};
+
+  private final boolean v2;
+  private final int paths;
+  private final int operationsPerPath;
+  private final int schemas;
+  private final boolean suppressions;
+
+  /**
+   * @param v2 {@code true} to generate an OpenAPI v2 contract, {@code false} for OpenAPI v3
+   * @param paths the number of paths
+   * @param operationsPerPath the number of operations of each path, between 1 and 7
+   * @param schemas the number of schemas
+   * @param suppressions {@code true} to add {@code x-nosonar} and {@code x-sonar-disable} markers
+   */
+  public ContractGenerator(boolean v2, int paths, int operationsPerPath, int schemas, boolean suppressions) {
+    if (operationsPerPath < 1 || operationsPerPath > METHODS.length) {
+      throw new IllegalArgumentException("The number of operations per path must be between 1 and " + METHODS.length);
+    }
+    this.v2 = v2;
+    this.paths = paths;
+    this.operationsPerPath = operationsPerPath;
+    this.schemas = schemas;
+    this.suppressions = suppressions;
+  }
+
+  public String generate() {
+    StringBuilder out = new StringBuilder();
+    if (v2) {
+      out.append("swagger: \"2.0\"\n");
+    } else {
+      out.append("openapi: \"3.0.1\"\n");
+    }
+    out.append("info:\n")
+      .append("  title: Synthetic API\n")
+      .append("  version: 1.0.0\n")
+      .append("  description: A generated contract with ").append(paths).append(" paths\n")
+      .append("  contact:\n")
+      .append("    name: Benchmarks\n")
+      .append("    email: benchmarks@example.com\n");
+    if (v2) {
+      out.append("produces:\n")
+        .append("  - application/json\n")
+        .append("consumes:\n")
+        .append("  - application/json\n");
+    }
+    if (suppressions) {
+      out.append("x-nosonar: [ DescriptionDiffersSummary ]\n");
+    }
+    out.append("tags:\n");
+    for (int i = 0; i < paths; ++i) {
+      out.append("  - name: tag").append(i).append('\n')
+        .append("    description: Operations of resource ").append(i).append('\n');
+    }
+    out.append("paths:\n");
+    if (paths == 0) {
+      out.append("  {}\n");
+    }
+    for (int i = 0; i < paths; ++i) {
+      appendPath(out, i);
+    }
+    appendSchemas(out);
+    return out.toString();
+  }
+
+  private void appendPath(StringBuilder out, int index) {
+    out.append("  # resource ").append(index).append('\n');
+    if (index % 2 == 0) {
+      out.append("  /resources").append(index / 2).append("/{id}:\n");
+    } else {
+      out.append("  /resources").append(index / 2).append("/search:\n");
+    }
+    for (int i = 0; i < operationsPerPath; ++i) {
+      appendOperation(out, index, METHODS[i]);
+    }
+  }
+
+  private void appendOperation(StringBuilder out, int pathIndex, String method) {
+    String id = method + "Resource" + pathIndex;
+    out.append("    ").append(method).append(":\n");
+    if (suppressions && pathIndex % 10 == 0) {
+      out.append("      x-sonar-disable: [ ProvideOpSummary, DefaultResponse ]\n");
+    }
+    out.append("      summary: ").append(method).append(" resource ").append(pathIndex).append('\n')
+      .append("      description: Applies ").append(method).append(" to resource ").append(pathIndex).append('\n')
+      .append("      operationId: ").append(id).append('\n')
+      .append("      tags:\n")
+      .append("        - tag").append(pathIndex).append('\n')
+      .append("      parameters:\n");
+    if (pathIndex % 2 == 0) {
+      appendParameter(out, "id", "path", true);
+    } else {
+      appendParameter(out, "filter", "query", false);
+    }
+    if (v2 && ("put".equals(method) || "post".equals(method) || "patch".equals(method))) {
+      out.append("        - name: body\n")
+        .append("          in: body\n")
+        .append("          required: true\n")
+        .append("          schema:\n");
+      appendSchemaReference(out, pathIndex, "            ");
+    }
+    out.append("      responses:\n")
+      .append("        '200':\n")
+      .append("          description: The resource\n");
+    if (!"head".equals(method)) {
+      if (v2) {
+        out.append("          schema:\n");
+        appendSchemaReference(out, pathIndex, "            ");
+      } else {
+        out.append("          content:\n")
+          .append("            application/json:\n")
+          .append("              schema:\n");
+        appendSchemaReference(out, pathIndex, "                ");
+      }
+    }
+    out.append("        default:\n")
+      .append("          description: Unexpected error\n");
+  }
+
+  private void appendParameter(StringBuilder out, String name, String location, boolean required) {
+    out.append("        - name: ").append(name).append('\n')
+      .append("          in: ").append(location).append('\n')
+      .append("          description: The ").append(name).append(" of the resource\n")
+      .append("          required: ").append(required).append('\n');
+    if (v2) {
+      out.append("          type: string\n");
+    } else {
+      out.append("          schema:\n")
+        .append("            type: string\n");
+    }
+  }
+
+  private void appendSchemaReference(StringBuilder out, int index, String indent) {
+    if (schemas == 0) {
+      out.append(indent).append("type: string\n");
+    } else {
+      out.append(indent).append("$ref: '").append(v2 ? "#/definitions/" : "#/components/schemas/")
+        .append("Schema").append(index % schemas).append("'\n");
+    }
+  }
+
+  private void appendSchemas(StringBuilder out) {
+    if (schemas == 0) {
+      return;
+    }
+    String indent;
+    if (v2) {
+      out.append("definitions:\n");
+      indent = "  ";
+    } else {
+      out.append("components:\n")
+        .append("  schemas:\n");
+      indent = "    ";
+    }
+    for (int i = 0; i < schemas; ++i) {
+      out.append(indent).append("Schema").append(i).append(":\n")
+        .append(indent).append("  type: object\n")
+        .append(indent).append("  description: Generated schema ").append(i).append('\n')
+        .append(indent).append("  required:\n")
+        .append(indent).append("    - id\n")
+        .append(indent).append("  properties:\n")
+        .append(indent).append("    id:\n")
+        .append(indent).append("      type: string\n")
+        .append(indent).append("    count:\n")
+        .append(indent).append("      type: integer\n")
+        .append(indent).append("      format: int32\n");
+      if (i + 1 < schemas) {
+        out.append(indent).append("    next:\n")
+          .append(indent).append("      $ref: '").append(v2 ? "#/definitions/" : "#/components/schemas/")
+          .append("Schema").append(i + 1).append("'\n");
+      }
+    }
+  }
+}
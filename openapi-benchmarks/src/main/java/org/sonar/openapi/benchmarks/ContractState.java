@@ -0,0 +1,91 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.openapi.parser.OpenApiParser;
+import org.sonar.plugins.openapi.api.OpenApiFile;
+import org.sonar.plugins.openapi.api.OpenApiVisitorContext;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * A generated contract, with its parser and its parsed tree. The size of the contract is controlled with the
+ * {@code paths}, {@code operationsPerPath} and {@code schemas} parameters, e.g. {@code -p paths=1000}.
+ */
+@State(Scope.Benchmark)
+public class ContractState {
+  @Param({"v2", "v3"})
+  public String version;
+
+  @Param({"100"})
+  public int paths;
+
+  @Param({"3"})
+  public int operationsPerPath;
+
+  @Param({"50"})
+  public int schemas;
+
+  @Param({"false"})
+  public boolean suppressions;
+
+  protected String content;
+  protected YamlParser parser;
+  protected JsonNode root;
+  protected OpenApiVisitorContext context;
+
+  @Setup
+  public void generateContract() {
+    boolean isv2 = "v2".equals(version);
+    content = new ContractGenerator(isv2, paths, operationsPerPath, schemas, suppressions).generate();
+    OpenApiConfiguration configuration = new OpenApiConfiguration(StandardCharsets.UTF_8, true);
+    parser = isv2 ? OpenApiParser.createV2(configuration) : OpenApiParser.createV3(configuration);
+    root = parser.parse(content);
+    context = newContext();
+  }
+
+  protected OpenApiVisitorContext newContext() {
+    return new OpenApiVisitorContext(root, parser.getIssues(), new GeneratedFile(content));
+  }
+
+  static class GeneratedFile implements OpenApiFile {
+    private final String content;
+
+    GeneratedFile(String content) {
+      this.content = content;
+    }
+
+    @Override
+    public String content() {
+      return content;
+    }
+
+    @Override
+    public String fileName() {
+      return "generated.yaml";
+    }
+  }
+}
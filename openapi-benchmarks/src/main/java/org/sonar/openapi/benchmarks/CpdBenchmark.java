@@ -0,0 +1,79 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
+import org.sonar.api.batch.sensor.internal.SensorContextTester;
+import org.sonar.plugins.openapi.cpd.OpenApiCpdAnalyzer;
+
+/**
+ * Extraction of the duplication tokens of a parsed contract, alone and with their storage in a sensor context.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CpdBenchmark extends ContractState {
+  private final Path baseDir = Paths.get(".").toAbsolutePath();
+  private InputFile inputFile;
+  private OpenApiCpdAnalyzer cpdAnalyzer;
+
+  @Setup
+  public void createInputFile() {
+    inputFile = TestInputFileBuilder.create("moduleKey", "generated.yaml")
+      .setModuleBaseDir(baseDir)
+      .setCharset(StandardCharsets.UTF_8)
+      .setType(InputFile.Type.MAIN)
+      .initMetadata(content)
+      .build();
+  }
+
+  // the sensor context refuses to store the tokens of a file twice
+  @Setup(Level.Invocation)
+  public void createSensorContext() {
+    cpdAnalyzer = new OpenApiCpdAnalyzer(SensorContextTester.create(baseDir));
+  }
+
+  @Benchmark
+  public List<OpenApiCpdAnalyzer.CpdToken> collectCpdTokens() {
+    return OpenApiCpdAnalyzer.collectCpdTokens(context);
+  }
+
+  @Benchmark
+  public void pushCpdTokens() {
+    cpdAnalyzer.pushCpdTokens(inputFile, context);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.openapi.checks.CheckList;
+import org.sonar.plugins.openapi.api.OpenApiCheck;
+import org.sonar.plugins.openapi.api.OpenApiVisitorDispatcher;
+import org.sonar.plugins.openapi.api.PreciseIssue;
+
+/**
+ * Run of all the checks of {@link CheckList} over a parsed contract, one traversal per check versus a single traversal
+ * shared by all checks with an {@link OpenApiVisitorDispatcher}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DispatcherBenchmark extends ContractState {
+  private final List<OpenApiCheck> checks = new ArrayList<>();
+  private OpenApiVisitorDispatcher dispatcher;
+
+  @Setup
+  public void createChecks() throws ReflectiveOperationException {
+    checks.clear();
+    for (Class<?> type : CheckList.getChecks()) {
+      checks.add((OpenApiCheck) type.newInstance());
+    }
+    dispatcher = new OpenApiVisitorDispatcher(checks);
+  }
+
+  @Benchmark
+  public void traversalPerCheck(Blackhole blackhole) {
+    for (OpenApiCheck check : checks) {
+      blackhole.consume(check.scanFileForIssues(context));
+    }
+  }
+
+  @Benchmark
+  public Map<OpenApiCheck, List<PreciseIssue>> sharedTraversal() {
+    return dispatcher.scanFileForIssues(context);
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.openapi.parser.OpenApiParser;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Heap retained by a parsed contract. The score of {@code parse} is the time to parse the contract. {@code retainedHeap} reports the heap retained by the tree, in KB per MB of YAML,
+ * as its {@code kilobytesPerMegabyte} secondary result; its own score is meaningless.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HeapBenchmark {
+  private static final double MEGABYTE = 1024.0 * 1024.0;
+
+  @Param({"v2", "v3"})
+  public String version;
+
+  @Param({"1000"})
+  public int paths;
+
+  private String content;
+  private double megabytes;
+  private YamlParser parser;
+  private JsonNode tree;
+
+  @Setup
+  public void generateContract() {
+    boolean isv2 = "v2".equals(version);
+    content = new ContractGenerator(isv2, paths, 3, paths / 2, false).generate();
+    megabytes = content.getBytes(StandardCharsets.UTF_8).length / MEGABYTE;
+    OpenApiConfiguration configuration = new OpenApiConfiguration(StandardCharsets.UTF_8, true);
+    parser = OpenApiParser.create(configuration, isv2);
+  }
+
+  @Benchmark
+  public JsonNode parse() {
+    tree = parser.parse(content);
+    return tree;
+  }
+
+  /**
+   * Measured once: JMH sums the events counted over the measurement iterations.
+   */
+  @Benchmark
+  @Measurement(iterations = 1)
+  public void retainedHeap(RetainedHeap retainedHeap) {
+    tree = null;
+    long baseline = usedHeapAfterCollection();
+    // kept by this state until the heap is measured again
+    parse();
+    long retained = usedHeapAfterCollection() - baseline;
+    retainedHeap.kilobytesPerMegabyte = retained / 1024.0 / megabytes;
+  }
+
+  private static long usedHeapAfterCollection() {
+    ManagementFactory.getMemoryMXBean().gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class RetainedHeap {
+    public double kilobytesPerMegabyte;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      kilobytesPerMegabyte = 0;
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.openapi.checks.PathMaskeradingCheck;
+import org.sonar.openapi.parser.OpenApiParser;
+import org.sonar.plugins.openapi.api.OpenApiVisitorContext;
+import org.sonar.plugins.openapi.api.PreciseIssue;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Scaling of {@link PathMaskeradingCheck} with the number of paths, over a contract shaped like an aggregated
+ * gateway: every path has 4 or 5 segments, is prefixed by one of a few services and mixes literal and templated
+ * segments, with a path masking another one every tenth path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PathMaskeradingBenchmark {
+  private static final int SERVICES = 20;
+
+  @Param({"500", "1000", "2000", "3500"})
+  public int paths;
+
+  private OpenApiVisitorContext context;
+  private final PathMaskeradingCheck check = new PathMaskeradingCheck();
+
+  @Setup
+  public void generateContract() {
+    String content = generate(paths);
+    YamlParser parser = OpenApiParser.createV3(new OpenApiConfiguration(StandardCharsets.UTF_8, true));
+    JsonNode root = parser.parse(content);
+    context = new OpenApiVisitorContext(root, parser.getIssues(), new ContractState.GeneratedFile(content));
+  }
+
+  @Benchmark
+  public List<PreciseIssue> scanFile() {
+    return check.scanFileForIssues(context);
+  }
+
+  private static String generate(int paths) {
+    StringBuilder out = new StringBuilder()
+      .append("openapi: \"3.0.1\"\n")
+      .append("info:\n")
+      .append("  title: Gateway API\n")
+      .append("  version: 1.0.0\n")
+      .append("paths:\n");
+    for (int i = 0; i < paths; ++i) {
+      // two consecutive paths share the same resource
+      int resourceIndex = i / 2;
+      String resource = "/service" + (resourceIndex % SERVICES) + "/v1/resources" + (resourceIndex / SERVICES);
+      if (i % 10 == 9) {
+        out.append("  ").append(resource).append("/search:\n");
+      } else if (i % 2 == 0) {
+        out.append("  ").append(resource).append("/{id}:\n");
+      } else {
+        out.append("  ").append(resource).append("/{id}/items:\n");
+      }
+      out.append("    get:\n")
+        .append("      responses:\n")
+        .append("        '200':\n")
+        .append("          description: OK\n");
+    }
+    return out.toString();
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.benchmarks;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonar.plugins.openapi.api.OpenApiVisitor;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+/**
+ * Traversal of a parsed contract by {@link OpenApiVisitor#scanFile}, which walks the tree with an explicit stack,
+ * versus a plain recursive walk calling the same visitor methods. The recursive walk leaves out the tracking of
+ * suppressions, which has nothing to do on contracts without suppressions, such as the default generated contract.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TraversalBenchmark extends ContractState {
+  private final CountingVisitor visitor = new CountingVisitor();
+
+  @Benchmark
+  public int explicitStack() {
+    visitor.count = 0;
+    visitor.scanFile(context);
+    return visitor.count;
+  }
+
+  @Benchmark
+  public int recursive() {
+    visitor.count = 0;
+    visitor.recurse(root);
+    return visitor.count;
+  }
+
+  private static class CountingVisitor extends OpenApiVisitor {
+    private int count;
+
+    @Override
+    protected boolean isSubscribed(AstNodeType nodeType) {
+      return true;
+    }
+
+    @Override
+    protected void visitNode(JsonNode node) {
+      count++;
+    }
+
+    @Override
+    protected void leaveNode(JsonNode node) {
+      count++;
+    }
+
+    @Override
+    protected void visitToken(Token token) {
+      count++;
+    }
+
+    private void recurse(JsonNode node) {
+      boolean isSkipped = isSkipped(node);
+      boolean visited = isSubscribed(node.getType()) && !isSkipped;
+      if (visited) {
+        visitNode(node);
+      }
+      List<JsonNode> children = node.getJsonChildren();
+      if (children.isEmpty() && !isSkipped) {
+        for (Token token : node.getTokens()) {
+          visitToken(token);
+        }
+      } else {
+        for (JsonNode child : children) {
+          recurse(child);
+        }
+      }
+      if (visited) {
+        leaveNode(node);
+      }
+    }
+  }
+}
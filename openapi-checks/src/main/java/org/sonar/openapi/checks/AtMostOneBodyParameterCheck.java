@@ -19,7 +19,7 @@
  */
 package org.sonar.openapi.checks;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.Set;
 import org.sonar.check.Rule;
@@ -33,7 +33,7 @@ public class AtMostOneBodyParameterCheck extends OpenApiCheck {
 
   @Override
   public Set<AstNodeType> subscribedKinds() {
-    return Sets.newHashSet(OpenApi2Grammar.OPERATION);
+    return ImmutableSet.of(OpenApi2Grammar.OPERATION);
   }
 
   @Override
@@ -47,7 +47,7 @@ public class AtMostOneBodyParameterCheck extends OpenApiCheck {
   }
 
   private boolean isBodyParam(JsonNode n) {
-    return n.resolve().at("/in").getTokenValue().equals("body");
+    return getContext().resolve(n).at("/in").getTokenValue().equals("body");
   }
 
 }
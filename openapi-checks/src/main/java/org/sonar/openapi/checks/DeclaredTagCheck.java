@@ -19,7 +19,7 @@
  */
 package org.sonar.openapi.checks;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.Set;
 import org.sonar.check.Rule;
@@ -34,7 +34,7 @@ public class DeclaredTagCheck extends OpenApiCheck {
 
   @Override
   public Set<AstNodeType> subscribedKinds() {
-    return Sets.newHashSet(OpenApi2Grammar.OPERATION, OpenApi3Grammar.OPERATION);
+    return ImmutableSet.of(OpenApi2Grammar.OPERATION, OpenApi3Grammar.OPERATION);
   }
 
   @Override
@@ -19,7 +19,7 @@
  */
 package org.sonar.openapi.checks;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.Set;
 import org.sonar.check.Rule;
@@ -36,7 +36,7 @@ public class DefaultResponseCheck extends OpenApiCheck {
 
     @Override
     public Set<AstNodeType> subscribedKinds() {
-        return Sets.newHashSet(OpenApi2Grammar.RESPONSES, OpenApi3Grammar.RESPONSES);
+        return ImmutableSet.of(OpenApi2Grammar.RESPONSES, OpenApi3Grammar.RESPONSES);
     }
 
     @Override
@@ -19,7 +19,7 @@
  */
 package org.sonar.openapi.checks;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.Collections;
 import java.util.HashMap;
@@ -39,7 +39,7 @@ public class DefinedResponseCheck extends OpenApiCheck {
 
   @Override
   public Set<AstNodeType> subscribedKinds() {
-    return Sets.newHashSet(
+    return ImmutableSet.of(
       OpenApi2Grammar.RESPONSES, OpenApi3Grammar.RESPONSES);
   }
 
@@ -65,7 +65,7 @@ public class DefinedResponseCheck extends OpenApiCheck {
   }
 
   private boolean visitResponseV2OrMediaType(JsonNode node, boolean hasDefaultContent) {
-    JsonNode actual = node.resolve();
+    JsonNode actual = getContext().resolve(node);
     Map<String, JsonNode> properties = actual.propertyMap();
     if (!properties.containsKey("schema") && !hasDefaultContent) {
       addIssue(MESSAGE_NO_MODEL, node.key());
@@ -103,7 +103,7 @@ public class DefinedResponseCheck extends OpenApiCheck {
   }
 
   private Map<String, JsonNode> getContents(JsonNode node) {
-    JsonNode actual = node.resolve();
+    JsonNode actual = getContext().resolve(node);
     Map<String, JsonNode> properties = actual.propertyMap();
     JsonNode content = properties.get("content");
     if (content == null) {
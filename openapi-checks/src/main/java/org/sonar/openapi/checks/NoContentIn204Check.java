@@ -19,7 +19,7 @@
  */
 package org.sonar.openapi.checks;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.Map;
 import java.util.Set;
@@ -35,7 +35,7 @@ public class NoContentIn204Check extends OpenApiCheck {
 
   @Override
   public Set<AstNodeType> subscribedKinds() {
-    return Sets.newHashSet(OpenApi2Grammar.OPERATION, OpenApi3Grammar.OPERATION);
+    return ImmutableSet.of(OpenApi2Grammar.OPERATION, OpenApi3Grammar.OPERATION);
   }
 
   @Override
@@ -50,7 +50,7 @@ public class NoContentIn204Check extends OpenApiCheck {
   }
 
   private void checkNoContent(JsonNode response) {
-    JsonNode effective = response.resolve();
+    JsonNode effective = getContext().resolve(response);
     if (hasContent(effective)) {
       addIssue("204 No Content MUST NOT return anything.", response.key());
     }
@@ -19,19 +19,14 @@
  */
 package org.sonar.openapi.checks;
 
-import com.fasterxml.jackson.core.JsonPointer;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.sonar.check.Rule;
 import org.sonar.plugins.openapi.api.OpenApiCheck;
+import org.sonar.plugins.openapi.api.ReferenceIndex;
 import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
 import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
 import org.sonar.sslr.yaml.grammar.JsonNode;
@@ -46,7 +41,7 @@ public class NoUnusedDefinitionCheck extends OpenApiCheck {
 
   @Override
   public Set<AstNodeType> subscribedKinds() {
-    return Sets.newHashSet(OpenApi2Grammar.OPERATION, OpenApi3Grammar.OPERATION);
+    return ImmutableSet.of(OpenApi2Grammar.OPERATION, OpenApi3Grammar.OPERATION);
   }
 
   @Override
@@ -76,44 +71,15 @@ public class NoUnusedDefinitionCheck extends OpenApiCheck {
     }
   }
 
-  private static Set<JsonPointer> openApi2Dicriminators(JsonNode n) {
-    JsonNode d = n.at("/discriminator");
-    if (d.isMissing()) {
-      return Collections.emptySet();
-    }
-    JsonNode at = n.at("/properties/" + d.getTokenValue() + "/enum");
-    if (at.isArray()) {
-      return at.elements().stream()
-          .map(JsonNode::getTokenValue)
-          .map(Utils::escape)
-          .map(p -> JsonPointer.compile("/definitions").append(p))
-          .collect(Collectors.toSet());
-    } else {
-      return Collections.emptySet();
-    }
-  }
-
-  private static Set<JsonPointer> openApi3Dicriminators(JsonNode n) {
-    JsonNode d = n.at("/discriminator");
-    if (d.isMissing()) {
-      return Collections.emptySet();
-    }
-    return d.at("/mapping").propertyMap().values().stream()
-        .map(JsonNode::getTokenValue)
-        .map(s -> s.substring(1))
-        .map(JsonPointer::compile)
-        .collect(Collectors.toSet());
-  }
-
   private void inspectOpenApi2(JsonNode root) {
-    Set<JsonPointer> used = usedReferences(root, NoUnusedDefinitionCheck::openApi2Dicriminators);
+    ReferenceIndex used = getContext().references();
     reportUnused(root, "/definitions", "Unused schema", used);
     reportUnused(root, "/parameters", "Unused parameter", used);
     reportUnused(root, "/responses", "Unused response", used);
   }
 
   private void inspectOpenApi3(JsonNode root) {
-    Set<JsonPointer> used = usedReferences(root, NoUnusedDefinitionCheck::openApi3Dicriminators);
+    ReferenceIndex used = getContext().references();
     reportUnused(root, "/components/schemas", "Unused schema", used);
     reportUnused(root, "/components/parameters", "Unused parameter", used);
     reportUnused(root, "/components/responses", "Unused response", used);
@@ -134,40 +100,13 @@ public class NoUnusedDefinitionCheck extends OpenApiCheck {
     }
   }
 
-  private void reportUnused(JsonNode root, String pointer, String message, Set<JsonPointer> used) {
-    JsonPointer jsonPointer = JsonPointer.compile(pointer);
-    Set<JsonPointer> pointers = root.at(pointer)
-        .propertyNames().stream()
-        .map(s -> jsonPointer.append(Utils.escape(s)))
-        .collect(Collectors.toSet());
-
-    Sets.difference(pointers, used).forEach(p ->
-        addIssue(message, root.at(p).key())
-        );
-  }
-
-  private static Set<JsonPointer> usedReferences(JsonNode node, Function<JsonNode, Set<JsonPointer>> discriminators) {
-    if (node.isArray()) {
-      return node.elements().stream().flatMap(n -> usedReferences(n, discriminators).stream()).collect(Collectors.toSet());
-    } else if (node.isObject()) {
-      Set<JsonPointer> refs = new HashSet<>();
-      refs.addAll(getReference(node));
-      refs.addAll(discriminators.apply(node));
-      refs.addAll(node.propertyMap()
-          .values().stream()
-          .flatMap(n -> usedReferences(n, discriminators).stream())
-          .collect(Collectors.toSet()));
-      return refs;
-    } else {
-      return Collections.emptySet();
-    }
-  }
-
-  private static List<JsonPointer> getReference(JsonNode node) {
-    if (node.isRef()) {
-      return Collections.singletonList(JsonPointer.compile(node.at("/$ref").getTokenValue().substring(1)));
-    } else {
-      return Collections.emptyList();
+  private void reportUnused(JsonNode root, String pointer, String message, ReferenceIndex used) {
+    JsonNode section = root.at(pointer);
+    for (String name : section.propertyNames()) {
+      String definition = pointer + "/" + Utils.escape(name);
+      if (!used.isReferenced(definition)) {
+        addIssue(message, root.at(definition).key());
+      }
     }
   }
 }
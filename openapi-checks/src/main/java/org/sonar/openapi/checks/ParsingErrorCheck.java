@@ -34,7 +34,7 @@ public class ParsingErrorCheck extends OpenApiCheck {
 
   @Override
   public void scanFile(OpenApiVisitorContext context) {
-    super.scanFile(context);
+    // this check only reports what the parser found, there is no need to walk the tree
     RecognitionException parsingException = context.parsingException();
     if (parsingException instanceof ValidationException) {
       for (ValidationException issue : ((ValidationException) parsingException).getCauses()) {
@@ -23,8 +23,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.sonar.check.Rule;
 import org.sonar.plugins.openapi.api.IssueLocation;
@@ -40,6 +42,14 @@ import static org.sonar.openapi.checks.PathMaskeradingCheck.ConflictMode.NONE;
 import static org.sonar.openapi.checks.PathMaskeradingCheck.ConflictMode.UNKNOWN;
 import static org.sonar.plugins.openapi.api.PathUtils.isVariable;
 
+/**
+ * Reports the paths that can be mistaken for one another.
+ * <p>
+ * Instead of comparing every pair of paths, the paths are stored in a trie of segments, where all the parameter
+ * segments of a level share the same child. Two cursors then walk down the trie together, only following the pairs of
+ * children that can still conflict: a literal with the same literal, or a parameter with a literal or a parameter.
+ * Paths that diverge on a literal segment are thus never compared.
+ */
 @Rule(key = PathMaskeradingCheck.CHECK_KEY)
 public class PathMaskeradingCheck extends OpenApiCheck {
   public static final String MASK_MESSAGE = "These paths are masking each other.";
@@ -68,14 +78,6 @@ public class PathMaskeradingCheck extends OpenApiCheck {
     }
   }
 
-  private static void ensureSize(List<List<Bucket>> list, int size) {
-    if (list.size() < size) {
-      for (int i = list.size(); i <= size; ++i) {
-        list.add(new ArrayList<>());
-      }
-    }
-  }
-
   @Override
   public Set<AstNodeType> subscribedKinds() {
     return ImmutableSet.of(OpenApi2Grammar.PATHS, OpenApi3Grammar.PATHS);
@@ -83,31 +85,106 @@ public class PathMaskeradingCheck extends OpenApiCheck {
 
   @Override
   public void visitNode(JsonNode node) {
-    List<List<Bucket>> pathsByLength = sortPathsByLength(node.propertyMap().values());
-    for (List<Bucket> buckets : pathsByLength) {
-      for (int i = 0; i < buckets.size() - 1; ++i) {
-        for (int j = i + 1; j < buckets.size(); ++j) {
-          ConflictMode mode = new ConflictChecker().check(buckets.get(i).path, buckets.get(j).path);
-          if (mode != NONE) {
-            String message = mode == MASKED ? MASK_MESSAGE : AMBIGUOUS_MESSAGE;
-            PreciseIssue issue = addIssue(message, buckets.get(i).node);
-            issue.secondary(IssueLocation.preciseLocation(message, buckets.get(j).node));
-          }
+    List<JsonNode> keys = new ArrayList<>();
+    List<String[]> paths = new ArrayList<>();
+    for (JsonNode property : node.propertyMap().values()) {
+      JsonNode keyNode = property.key();
+      keys.add(keyNode);
+      paths.add(split(keyNode.getTokenValue()));
+    }
+    for (Conflict conflict : findConflicts(paths)) {
+      String message = conflict.mode == MASKED ? MASK_MESSAGE : AMBIGUOUS_MESSAGE;
+      PreciseIssue issue = addIssue(message, keys.get(conflict.first));
+      issue.secondary(IssueLocation.preciseLocation(message, keys.get(conflict.second)));
+    }
+  }
+
+  /**
+   * Finds the conflicting pairs of paths.
+   * @param paths the segments of each path
+   * @return the conflicts, sorted by length of paths, then by index of first path, then by index of second path
+   */
+  @VisibleForTesting
+  static List<Conflict> findConflicts(List<String[]> paths) {
+    Segment root = new Segment();
+    for (int i = 0; i < paths.size(); ++i) {
+      root.add(paths.get(i), i);
+    }
+    List<Conflict> conflicts = new ArrayList<>();
+    walk(root, root, new ConflictChecker(), conflicts);
+    conflicts.sort(Comparator.<Conflict>comparingInt(c -> paths.get(c.first).length)
+      .thenComparingInt(c -> c.first)
+      .thenComparingInt(c -> c.second));
+    return conflicts;
+  }
+
+  /**
+   * Collects the conflicts between the paths below two segments of the same level. When both segments are the same,
+   * each pair of paths below it is only considered once.
+   */
+  private static void walk(Segment first, Segment second, ConflictChecker checker, List<Conflict> conflicts) {
+    if (checker.result == NONE) {
+      return;
+    }
+    collectConflicts(first, second, checker.result, conflicts);
+    if (first == second) {
+      for (Segment child : first.literals.values()) {
+        walk(child, child, checker, conflicts);
+      }
+      if (first.parameter != null) {
+        walkParameter(first.literals, first.parameter, first.parameterName, checker, false, conflicts);
+        walk(first.parameter, first.parameter, checker.then(first.parameterName, first.parameterName), conflicts);
+      }
+    } else {
+      boolean firstIsSmaller = first.literals.size() <= second.literals.size();
+      Map<String, Segment> smaller = firstIsSmaller ? first.literals : second.literals;
+      Map<String, Segment> larger = firstIsSmaller ? second.literals : first.literals;
+      for (Map.Entry<String, Segment> literal : smaller.entrySet()) {
+        Segment other = larger.get(literal.getKey());
+        if (other != null && firstIsSmaller) {
+          walk(literal.getValue(), other, checker, conflicts);
+        } else if (other != null) {
+          walk(other, literal.getValue(), checker, conflicts);
+        }
+      }
+      if (second.parameter != null) {
+        walkParameter(first.literals, second.parameter, second.parameterName, checker, false, conflicts);
+      }
+      if (first.parameter != null) {
+        walkParameter(second.literals, first.parameter, first.parameterName, checker, true, conflicts);
+        if (second.parameter != null) {
+          walk(first.parameter, second.parameter, checker.then(first.parameterName, second.parameterName), conflicts);
         }
       }
     }
   }
 
-  private List<List<Bucket>> sortPathsByLength(Collection<JsonNode> properties) {
-    ArrayList<List<Bucket>> result = new ArrayList<>();
-    for (JsonNode property : properties) {
-      JsonNode keyNode = property.key();
-      String[] split = split(keyNode.getTokenValue());
-      ensureSize(result, split.length);
-      List<Bucket> list = result.get(split.length - 1);
-      list.add(new Bucket(split, keyNode));
+  private static void walkParameter(Map<String, Segment> literals, Segment parameter, String parameterName,
+    ConflictChecker checker, boolean parameterFirst, List<Conflict> conflicts) {
+    for (Map.Entry<String, Segment> literal : literals.entrySet()) {
+      if (parameterFirst) {
+        walk(parameter, literal.getValue(), checker.then(parameterName, literal.getKey()), conflicts);
+      } else {
+        walk(literal.getValue(), parameter, checker.then(literal.getKey(), parameterName), conflicts);
+      }
+    }
+  }
+
+  private static void collectConflicts(Segment first, Segment second, ConflictMode mode, List<Conflict> conflicts) {
+    if (first == second) {
+      for (int i = 0; i < first.paths.size() - 1; ++i) {
+        for (int j = i + 1; j < first.paths.size(); ++j) {
+          conflicts.add(new Conflict(first.paths.get(i), first.paths.get(j), mode));
+        }
+      }
+    } else {
+      for (int i : first.paths) {
+        for (int j : second.paths) {
+          // the outcome of a conflict does not depend on the order of its paths
+          conflicts.add(i < j ? new Conflict(i, j, mode) : new Conflict(j, i, mode));
+        }
+      }
     }
-    return result;
   }
 
   enum ConflictMode {
@@ -117,35 +194,89 @@ public class PathMaskeradingCheck extends OpenApiCheck {
     MASKED
   }
 
-  private static class Bucket {
-    private final String[] path;
-    private final JsonNode node;
+  /**
+   * A segment of the trie of paths, with the paths that end at this segment.
+   */
+  private static class Segment {
+    private final Map<String, Segment> literals = new HashMap<>();
+    private Segment parameter;
+    private String parameterName;
+    private final List<Integer> paths = new ArrayList<>(1);
+
+    private void add(String[] path, int index) {
+      Segment segment = this;
+      for (String name : path) {
+        segment = segment.child(name);
+      }
+      segment.paths.add(index);
+    }
+
+    private Segment child(String name) {
+      if (isVariable(name)) {
+        // all parameters behave the same, whatever their name
+        if (parameter == null) {
+          parameter = new Segment();
+          parameterName = name;
+        }
+        return parameter;
+      }
+      return literals.computeIfAbsent(name, k -> new Segment());
+    }
+  }
+
+  @VisibleForTesting
+  static class Conflict {
+    final int first;
+    final int second;
+    final ConflictMode mode;
+
+    Conflict(int first, int second, ConflictMode mode) {
+      this.first = first;
+      this.second = second;
+      this.mode = mode;
+    }
 
-    private Bucket(String[] path, JsonNode node) {
-      this.path = path;
-      this.node = node;
+    @Override
+    public String toString() {
+      return first + "/" + second + ": " + mode;
     }
   }
 
   @VisibleForTesting
   static class ConflictChecker {
-    private int maskSource;
+    private ConflictMode result = UNKNOWN;
+    private int maskSource; // source is the one who is not a parameter
 
     public ConflictMode check(String[] first, String[] second) {
       if (first.length != second.length) {
         return NONE;
       }
-      maskSource = 0; // source is the one who is not a parameter
-      ConflictMode result = UNKNOWN;
+      maskSource = 0;
+      result = UNKNOWN;
       for (int i = 0; result != NONE && i < first.length; ++i) {
-        if (onlyOneIsEmpty(first[i], second[i])) {
-          return NONE;
-        }
-        result = updateResult(first[i], second[i], result);
+        result = next(first[i], second[i]);
       }
       return result;
     }
 
+    /**
+     * @return a checker for the paths continued by the given segments, leaving this one untouched
+     */
+    private ConflictChecker then(String segment1, String segment2) {
+      ConflictChecker checker = new ConflictChecker();
+      checker.maskSource = maskSource;
+      checker.result = result;
+      checker.result = checker.next(segment1, segment2);
+      return checker;
+    }
+
+    private ConflictMode next(String segment1, String segment2) {
+      if (onlyOneIsEmpty(segment1, segment2)) {
+        return NONE;
+      }
+      return updateResult(segment1, segment2, result);
+    }
+
     private boolean onlyOneIsEmpty(String s, String s1) {
       return s.isEmpty() ^ s1.isEmpty();
     }
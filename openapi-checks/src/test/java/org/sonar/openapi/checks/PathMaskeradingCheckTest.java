@@ -19,9 +19,13 @@
  */
 package org.sonar.openapi.checks;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.junit.Test;
 import org.sonar.openapi.OpenApiCheckVerifier;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.sonar.openapi.checks.PathMaskeradingCheck.ConflictMode.AMBIGUOUS;
 import static org.sonar.openapi.checks.PathMaskeradingCheck.ConflictMode.MASKED;
@@ -86,4 +90,39 @@ public class PathMaskeradingCheckTest {
     assertEquals(MASKED, hasConflicts("/{a}/{b}", "/{o}/b"));
   }
 
+  @Test
+  public void finds_the_same_conflicts_as_pairwise_comparison() {
+    String[] segments = {"a", "b", "c", "{p}", "{q}", ""};
+    Random random = new Random(42);
+    List<String[]> paths = new ArrayList<>();
+    for (int i = 0; i < 300; ++i) {
+      StringBuilder path = new StringBuilder();
+      int length = 1 + random.nextInt(4);
+      for (int j = 0; j < length; ++j) {
+        path.append('/').append(segments[random.nextInt(segments.length)]);
+      }
+      paths.add(split(path.toString()));
+    }
+
+    List<String> expected = new ArrayList<>();
+    for (int length = 1; length <= 5; ++length) {
+      for (int i = 0; i < paths.size(); ++i) {
+        for (int j = i + 1; j < paths.size(); ++j) {
+          if (paths.get(i).length == length) {
+            PathMaskeradingCheck.ConflictMode mode = new PathMaskeradingCheck.ConflictChecker().check(paths.get(i), paths.get(j));
+            if (mode != NONE) {
+              expected.add(new PathMaskeradingCheck.Conflict(i, j, mode).toString());
+            }
+          }
+        }
+      }
+    }
+    List<String> actual = new ArrayList<>();
+    for (PathMaskeradingCheck.Conflict conflict : PathMaskeradingCheck.findConflicts(paths)) {
+      actual.add(conflict.toString());
+    }
+
+    assertThat(expected).isNotEmpty();
+    assertThat(actual).containsExactlyElementsOf(expected);
+  }
 }
@@ -23,6 +23,7 @@ import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.Trivia;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
@@ -35,9 +36,9 @@ import org.sonar.sslr.yaml.grammar.JsonNode;
  */
 public class FileLinesVisitor extends OpenApiVisitor {
 
-  private Set<Integer> noSonar = new HashSet<>();
-  private Set<Integer> linesOfCode = new HashSet<>();      // the list of all line numbers
-  private Set<Integer> linesOfComments = new HashSet<>();  // the list of all line numbers
+  private final BitSet noSonar = new BitSet();
+  private final BitSet linesOfCode = new BitSet();      // the set of all line numbers
+  private final BitSet linesOfComments = new BitSet();  // the set of all line numbers
 
   @Override
   protected boolean isSubscribed(AstNodeType nodeType) {
@@ -85,29 +86,70 @@ public class FileLinesVisitor extends OpenApiVisitor {
     }
   }
 
-  private void addTokenLines(Token token, Set<Integer> lines) {
+  private static void addTokenLines(Token token, BitSet lines) {
     // String tokens are rather complicated in Yaml. We need to work on the original value to reason on lines,
-    // and remove any trailing newline that could be left by the parser
-    String[] tokenLines = token.getOriginalValue().trim().split("\n", -1);
-    for (int line = token.getLine(); line < token.getLine() + tokenLines.length; line++) {
-      lines.add(line);
+    // and ignore any leading or trailing newline that could be left by the parser
+    int line = token.getLine();
+    lines.set(line, line + countLines(token.getOriginalValue()));
+  }
+
+  /**
+   * @return the number of lines of {@code value} once trimmed, without allocating
+   */
+  static int countLines(String value) {
+    int start = 0;
+    int end = value.length();
+    while (start < end && value.charAt(start) <= ' ') {
+      start++;
+    }
+    while (end > start && value.charAt(end - 1) <= ' ') {
+      end--;
     }
+    int lines = 1;
+    for (int i = start; i < end; i++) {
+      if (value.charAt(i) == '\n') {
+        lines++;
+      }
+    }
+    return lines;
   }
 
   private void visitComment(Trivia trivia) {
     int line = trivia.getToken().getLine();
-    linesOfComments.add(line);
+    linesOfComments.set(line);
   }
 
   public Set<Integer> getLinesWithNoSonar() {
-    return Collections.unmodifiableSet(new HashSet<>(noSonar));
+    return toSet(noSonar);
   }
 
   public Set<Integer> getLinesOfCode() {
-    return Collections.unmodifiableSet(new HashSet<>(linesOfCode));
+    return toSet(linesOfCode);
   }
 
   public Set<Integer> getLinesOfComments() {
-    return Collections.unmodifiableSet(new HashSet<>(linesOfComments));
+    return toSet(linesOfComments);
+  }
+
+  /**
+   * @return a copy of the line numbers of code, to iterate on without boxing
+   */
+  public BitSet getLinesOfCodeBits() {
+    return (BitSet) linesOfCode.clone();
+  }
+
+  /**
+   * @return a copy of the line numbers of comments, to iterate on without boxing
+   */
+  public BitSet getLinesOfCommentsBits() {
+    return (BitSet) linesOfComments.clone();
+  }
+
+  private static Set<Integer> toSet(BitSet lines) {
+    Set<Integer> set = new HashSet<>();
+    for (int line = lines.nextSetBit(0); line >= 0; line = lines.nextSetBit(line + 1)) {
+      set.add(line);
+    }
+    return Collections.unmodifiableSet(set);
   }
 }
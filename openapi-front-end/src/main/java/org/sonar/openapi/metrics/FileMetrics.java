@@ -19,58 +19,41 @@
  */
 package org.sonar.openapi.metrics;
 
-import com.sonar.sslr.api.AstNode;
+import com.sonar.sslr.api.AstNodeType;
+import java.util.Arrays;
+import org.sonar.plugins.openapi.api.OpenApiVisitor;
 import org.sonar.plugins.openapi.api.OpenApiVisitorContext;
+import org.sonar.plugins.openapi.api.OpenApiVisitorDispatcher;
 import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
 import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 
 /**
  * Computes metrics that will be exposed by the plugin on each file.
+ * <p>
+ * All the metrics are computed during a single traversal of the file, shared by the visitors that compute them.
  */
 public class FileMetrics {
 
-  private int numberOfSchemas;
-  private int numberOfPaths;
-  private int numberOfOperations;
-
+  private final ObjectCountVisitor objectCountVisitor = new ObjectCountVisitor();
   private final ComplexityVisitor complexityVisitor = new ComplexityVisitor();
-  private final FileLinesVisitor fileLinesVisitor;
+  private final FileLinesVisitor fileLinesVisitor = new FileLinesVisitor();
 
   public FileMetrics(OpenApiVisitorContext context) {
-    countObjects(context);
-    complexityVisitor.scanFile(context);
-    fileLinesVisitor = new FileLinesVisitor();
-    fileLinesVisitor.scanFile(context);
-  }
-
-  private void countObjects(OpenApiVisitorContext context) {
-    AstNode rootTree = context.rootTree();
-    if (rootTree != null) {
-      numberOfSchemas = (int)rootTree.getDescendants(OpenApi2Grammar.SCHEMA, OpenApi3Grammar.SCHEMA)
-          .stream().filter(FileMetrics::isNotRef)
-          .count();
-      numberOfPaths = (int)rootTree.getDescendants(OpenApi2Grammar.PATH, OpenApi3Grammar.PATH)
-          .stream().filter(FileMetrics::isNotRef)
-          .count();
-      numberOfOperations = rootTree.getDescendants(OpenApi2Grammar.OPERATION, OpenApi3Grammar.OPERATION).size();
-    } else {
-      numberOfSchemas = 0;
-      numberOfPaths = 0;
-      numberOfOperations = 0;
-    }
+    new OpenApiVisitorDispatcher(Arrays.asList(objectCountVisitor, complexityVisitor, fileLinesVisitor))
+      .scanFile(context);
   }
 
   public int numberOfOperations() {
-    return numberOfOperations;
+    return objectCountVisitor.numberOfOperations;
   }
 
   public int numberOfPaths() {
-    return numberOfPaths;
+    return objectCountVisitor.numberOfPaths;
   }
 
   public int numberOfSchemas() {
-    return numberOfSchemas;
+    return objectCountVisitor.numberOfSchemas;
   }
 
   public int complexity() {
@@ -81,8 +64,50 @@ public class FileMetrics {
     return fileLinesVisitor;
   }
 
-  private static boolean isNotRef(AstNode node) {
-    return !((JsonNode)node).isRef();
-  }
+  /**
+   * Counts the schemas, paths and operations of the file. References to schemas and paths are not counted.
+   */
+  private static class ObjectCountVisitor extends OpenApiVisitor {
+    private int numberOfSchemas;
+    private int numberOfPaths;
+    private int numberOfOperations;
+
+    @Override
+    protected boolean isSubscribed(AstNodeType nodeType) {
+      return isSchema(nodeType) || isPath(nodeType) || isOperation(nodeType);
+    }
 
+    @Override
+    public void visitFile(JsonNode node) {
+      numberOfSchemas = 0;
+      numberOfPaths = 0;
+      numberOfOperations = 0;
+    }
+
+    @Override
+    public void visitNode(JsonNode node) {
+      AstNodeType type = node.getType();
+      if (isOperation(type)) {
+        numberOfOperations++;
+      } else if (!node.isRef()) {
+        if (isSchema(type)) {
+          numberOfSchemas++;
+        } else {
+          numberOfPaths++;
+        }
+      }
+    }
+
+    private static boolean isSchema(AstNodeType type) {
+      return type == OpenApi2Grammar.SCHEMA || type == OpenApi3Grammar.SCHEMA;
+    }
+
+    private static boolean isPath(AstNodeType type) {
+      return type == OpenApi2Grammar.PATH || type == OpenApi3Grammar.PATH;
+    }
+
+    private static boolean isOperation(AstNodeType type) {
+      return type == OpenApi2Grammar.OPERATION || type == OpenApi3Grammar.OPERATION;
+    }
+  }
 }
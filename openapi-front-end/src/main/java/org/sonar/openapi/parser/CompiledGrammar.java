@@ -0,0 +1,51 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.parser;
+
+import java.util.function.Supplier;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.sslr.yaml.grammar.YamlGrammarBuilder;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Builds the grammar of one version of OpenAPI once, and creates parsers from it.
+ * <p>
+ * The grammar is only accessed while holding the lock of this instance, so that parsers can be created from any thread.
+ * Parsers are then independent of each other.
+ */
+final class CompiledGrammar {
+  private final Supplier<YamlGrammarBuilder> factory;
+  private YamlGrammarBuilder grammar;
+
+  CompiledGrammar(Supplier<YamlGrammarBuilder> factory) {
+    this.factory = factory;
+  }
+
+  synchronized YamlParser newParser(OpenApiConfiguration configuration) {
+    if (grammar == null) {
+      grammar = factory.get();
+    }
+    return YamlParser.builder()
+      .withCharset(configuration.getCharset())
+      .withGrammar(grammar)
+      .withStrictValidation(configuration.isStrict())
+      .build();
+  }
+}
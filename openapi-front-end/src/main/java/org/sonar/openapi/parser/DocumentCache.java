@@ -0,0 +1,192 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.parser;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.plugins.openapi.api.ExternalDocuments;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Parses the documents referred to by the contracts of an analysis, and keeps them for the next references.
+ * <p>
+ * The trees of the documents are read by the checks, and nothing guarantees that reading the same tree from several
+ * threads is safe: each analysis thread must use a cache of its own, obtained with {@link #forAnotherThread()}. Should
+ * a cache be used by several threads anyway, a document is parsed once, by the first thread that needs it, while the
+ * other threads wait for its result. The cache is bounded by the total size of the sources of the documents it holds, which the size of their trees is proportional
+ * to: when it is exceeded, the least recently used documents are evicted, and will be parsed again if needed. Documents
+ * that cannot be read or parsed are remembered as such.
+ */
+public final class DocumentCache implements ExternalDocuments {
+  /**
+   * Default maximum total size of the sources of the cached documents: 32 MB
+   */
+  public static final long DEFAULT_MAX_SIZE = 32L * 1024 * 1024;
+
+  private static final Logger LOG = Loggers.get(DocumentCache.class);
+
+  private final OpenApiConfiguration configuration;
+  private final long maxSize;
+  private final ThreadLocal<YamlParser> parsers;
+  // in access order, the least recently used first
+  private final LinkedHashMap<Path, Document> documents = new LinkedHashMap<>(16, 0.75f, true);
+  private final Map<Path, FutureTask<Document>> loading = new HashMap<>();
+  // shared with the caches of the other threads
+  private final AtomicInteger parsed;
+  private final AtomicInteger evictions;
+  private long size;
+
+  /**
+   * @param maxSize the maximum total size of the sources of the cached documents, in bytes
+   */
+  public DocumentCache(OpenApiConfiguration configuration, long maxSize) {
+    this(configuration, maxSize, new AtomicInteger(), new AtomicInteger());
+  }
+
+  private DocumentCache(OpenApiConfiguration configuration, long maxSize, AtomicInteger parsed, AtomicInteger evictions) {
+    this.configuration = configuration;
+    this.maxSize = maxSize;
+    this.parsers = ThreadLocal.withInitial(() -> OpenApiParser.createDocument(configuration));
+    this.parsed = parsed;
+    this.evictions = evictions;
+  }
+
+  /**
+   * @return an empty cache, with the same configuration and bound as this one, for another analysis thread. The
+   * documents it parses and evicts are counted with the ones of this cache.
+   */
+  public DocumentCache forAnotherThread() {
+    return new DocumentCache(configuration, maxSize, parsed, evictions);
+  }
+
+  @CheckForNull
+  @Override
+  public JsonNode get(Path path) {
+    FutureTask<Document> task;
+    boolean owner = false;
+    synchronized (this) {
+      Document document = documents.get(path);
+      if (document != null) {
+        return document.root;
+      }
+      task = loading.get(path);
+      if (task == null) {
+        task = new FutureTask<>(() -> load(path));
+        loading.put(path, task);
+        owner = true;
+      }
+    }
+    if (owner) {
+      task.run();
+    }
+    Document document = await(task, path);
+    if (owner) {
+      synchronized (this) {
+        loading.remove(path);
+        store(path, document);
+      }
+    }
+    return document.root;
+  }
+
+  /**
+   * @return the number of documents parsed so far, including the ones parsed again after being evicted
+   */
+  public int parsedDocuments() {
+    return parsed.get();
+  }
+
+  /**
+   * @return the number of documents evicted so far
+   */
+  public int evictions() {
+    return evictions.get();
+  }
+
+  private Document load(Path path) {
+    long weight;
+    try {
+      weight = Files.size(path);
+    } catch (IOException e) {
+      LOG.warn("Unable to read referenced file " + path + ": " + e.getMessage());
+      return new Document(null, 1);
+    }
+    try {
+      JsonNode root = parsers.get().parse(path.toFile());
+      parsed.incrementAndGet();
+      return new Document(root, Math.max(1, weight));
+    } catch (RecognitionException e) {
+      LOG.warn("Unable to parse referenced file " + path + ": " + e.getMessage());
+      return new Document(null, 1);
+    } catch (RuntimeException e) {
+      // a referenced file never fails the analysis of the contracts referring to it
+      LOG.warn("Unable to load referenced file " + path + ": " + e.getMessage());
+      return new Document(null, 1);
+    }
+  }
+
+  private void store(Path path, Document document) {
+    documents.put(path, document);
+    size += document.weight;
+    Iterator<Document> eldest = documents.values().iterator();
+    // the document just stored is the most recently used, and is always kept
+    while (size > maxSize && documents.size() > 1) {
+      size -= eldest.next().weight;
+      eldest.remove();
+      evictions.incrementAndGet();
+    }
+  }
+
+  private static Document await(FutureTask<Document> task, Path path) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the parsing of " + path, e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to load referenced file " + path, e.getCause());
+    }
+  }
+
+  private static final class Document {
+    private final JsonNode root;
+    private final long weight;
+
+    private Document(@Nullable JsonNode root, long weight) {
+      this.root = root;
+      this.weight = weight;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.parser;
+
+import org.sonar.sslr.grammar.GrammarRuleKey;
+import org.sonar.sslr.yaml.grammar.YamlGrammarBuilder;
+
+/**
+ * Grammar accepting any YAML or JSON document, used for the files that contracts refer to, which usually only hold a
+ * part of a contract.
+ */
+enum DocumentGrammar implements GrammarRuleKey {
+  ROOT;
+
+  static YamlGrammarBuilder create() {
+    YamlGrammarBuilder b = new YamlGrammarBuilder();
+    b.setRootRule(ROOT);
+    b.rule(ROOT).is(b.anything());
+    return b;
+  }
+}
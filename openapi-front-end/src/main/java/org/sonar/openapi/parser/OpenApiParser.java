@@ -24,16 +24,39 @@ import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
 import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
 import org.sonar.sslr.yaml.grammar.YamlParser;
 
+/**
+ * Creates the parsers of OpenAPI documents. The grammar of each version is built once per JVM, whatever the number of
+ * parsers. Parsers are not cached here: they belong to their callers, e.g. one per analysis thread, and are released
+ * with them.
+ */
 public class OpenApiParser {
+  private static final CompiledGrammar V2_GRAMMAR = new CompiledGrammar(OpenApi2Grammar::create);
+  private static final CompiledGrammar V3_GRAMMAR = new CompiledGrammar(OpenApi3Grammar::create);
+  private static final CompiledGrammar DOCUMENT_GRAMMAR = new CompiledGrammar(DocumentGrammar::create);
+
   private OpenApiParser() {
     // Hidden utility class constructor
   }
 
   public static YamlParser createV2(OpenApiConfiguration configuration) {
-    return YamlParser.builder().withCharset(configuration.getCharset()).withGrammar(OpenApi2Grammar.create()).withStrictValidation(configuration.isStrict()).build();
+    return V2_GRAMMAR.newParser(configuration);
   }
 
   public static YamlParser createV3(OpenApiConfiguration configuration) {
-    return YamlParser.builder().withCharset(configuration.getCharset()).withGrammar(OpenApi3Grammar.create()).withStrictValidation(configuration.isStrict()).build();
+    return V3_GRAMMAR.newParser(configuration);
+  }
+
+  /**
+   * @param isv2 {@code true} for an OpenAPI v2 parser, {@code false} for an OpenAPI v3 parser
+   */
+  public static YamlParser create(OpenApiConfiguration configuration, boolean isv2) {
+    return isv2 ? createV2(configuration) : createV3(configuration);
+  }
+
+  /**
+   * Creates a parser accepting any YAML or JSON document, for the files that contracts refer to.
+   */
+  public static YamlParser createDocument(OpenApiConfiguration configuration) {
+    return DOCUMENT_GRAMMAR.newParser(configuration);
   }
 }
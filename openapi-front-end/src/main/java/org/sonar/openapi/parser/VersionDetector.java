@@ -0,0 +1,196 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import javax.annotation.CheckForNull;
+
+/**
+ * Finds out the version of an OpenAPI document from the {@code swagger} or {@code openapi} property at its top level,
+ * without parsing it.
+ * <p>
+ * Only the first {@link #PREFIX_LENGTH} characters of a document are read, which is enough for the documents that
+ * declare their version first, as both specifications recommend. In YAML documents, the property is looked for at the
+ * start of the lines; in JSON documents, among the properties of the root object.
+ */
+public final class VersionDetector {
+  /**
+   * Number of characters read at the start of a document to find its version
+   */
+  public static final int PREFIX_LENGTH = 8192;
+
+  public enum Version {
+    V2("swagger"),
+    V3("openapi");
+
+    private final String property;
+
+    Version(String property) {
+      this.property = property;
+    }
+  }
+
+  private VersionDetector() {
+    // Hidden utility class constructor
+  }
+
+  /**
+   * Reads the start of a document to find its version. The reader is left open.
+   * @return the version, or {@code null} if the start of the document does not declare any
+   */
+  @CheckForNull
+  public static Version detect(Reader reader) throws IOException {
+    char[] buffer = new char[PREFIX_LENGTH];
+    int length = 0;
+    int read;
+    while (length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) >= 0) {
+      length += read;
+    }
+    return detect(buffer, length);
+  }
+
+  @CheckForNull
+  static Version detect(char[] text, int length) {
+    int start = 0;
+    if (length > 0 && text[0] == '\uFEFF') {
+      start = 1;
+    }
+    int first = skipBlanks(text, start, length);
+    if (first < length && text[first] == '{') {
+      return detectInJson(text, first + 1, length);
+    }
+    return detectInYaml(text, start, length);
+  }
+
+  /**
+   * Looks for the property at the start of the lines, quoted or not.
+   */
+  @CheckForNull
+  private static Version detectInYaml(char[] text, int start, int length) {
+    int line = start;
+    while (line < length) {
+      Version version = propertyAt(text, line, length);
+      if (version != null) {
+        return version;
+      }
+      while (line < length && text[line] != '\n') {
+        line++;
+      }
+      line++;
+    }
+    return null;
+  }
+
+  @CheckForNull
+  private static Version propertyAt(char[] text, int offset, int length) {
+    char quote = text[offset];
+    int name = quote == '"' || quote == '\'' ? offset + 1 : offset;
+    Version version = versionOf(text, name, length);
+    if (version == null) {
+      return null;
+    }
+    int end = name + version.property.length();
+    if (name != offset) {
+      if (end >= length || text[end] != quote) {
+        return null;
+      }
+      end++;
+    }
+    while (end < length && (text[end] == ' ' || text[end] == '\t')) {
+      end++;
+    }
+    return end < length && text[end] == ':' ? version : null;
+  }
+
+  /**
+   * Walks through the root object, skipping the content of strings and of nested values, until a property named as
+   * expected is found.
+   */
+  @CheckForNull
+  private static Version detectInJson(char[] text, int start, int length) {
+    int depth = 1;
+    int i = start;
+    while (i < length && depth > 0) {
+      char c = text[i];
+      if (c == '"') {
+        int end = skipString(text, i + 1, length);
+        if (depth == 1) {
+          Version version = versionOf(text, i + 1, length);
+          int colon = skipBlanks(text, end + 1, length);
+          if (version != null && end == i + 1 + version.property.length() && colon < length && text[colon] == ':') {
+            return version;
+          }
+        }
+        i = end;
+      } else if (c == '{' || c == '[') {
+        depth++;
+      } else if (c == '}' || c == ']') {
+        depth--;
+      }
+      i++;
+    }
+    return null;
+  }
+
+  /**
+   * @return the offset of the quote closing the string, or {@code length} if it is not closed
+   */
+  private static int skipString(char[] text, int start, int length) {
+    int i = start;
+    while (i < length && text[i] != '"') {
+      if (text[i] == '\\') {
+        i++;
+      }
+      i++;
+    }
+    return Math.min(i, length);
+  }
+
+  private static int skipBlanks(char[] text, int start, int length) {
+    int i = start;
+    while (i < length && Character.isWhitespace(text[i])) {
+      i++;
+    }
+    return i;
+  }
+
+  @CheckForNull
+  private static Version versionOf(char[] text, int offset, int length) {
+    for (Version version : Version.values()) {
+      if (startsWith(text, offset, length, version.property)) {
+        return version;
+      }
+    }
+    return null;
+  }
+
+  private static boolean startsWith(char[] text, int offset, int length, String prefix) {
+    if (offset + prefix.length() > length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length(); i++) {
+      if (text[offset + i] != prefix.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits of the time and of the number of nodes that the analysis of a single file can spend, so that a pathological
+ * contract, like a giant example or a deeply recursive schema, does not stall the whole analysis.
+ * <p>
+ * The budget of a file starts with {@link #start()}, and is spent by the visitors through the
+ * {@link OpenApiVisitorContext} it is given to: each node entered and each reference resolved counts as one node. This
+ * includes the walks that the context makes on its own, e.g. to collect the suppressions. Once the budget is exceeded,
+ * the visitor spending it gets a {@link BudgetExceededException}.
+ */
+public final class AnalysisBudget {
+  /**
+   * A budget without any limit.
+   */
+  public static final AnalysisBudget UNLIMITED = new AnalysisBudget(0, 0);
+
+  // the clock is only read every so many nodes, as it is much slower than counting
+  static final int CLOCK_PERIOD = 1024;
+
+  private final long timeoutMillis;
+  private final long maxNodes;
+
+  /**
+   * @param timeoutMillis the time a file can take, in milliseconds, or 0 for no limit
+   * @param maxNodes the number of nodes the visitors of a file can visit, or 0 for no limit
+   */
+  public AnalysisBudget(long timeoutMillis, long maxNodes) {
+    if (timeoutMillis < 0 || maxNodes < 0) {
+      throw new IllegalArgumentException("Budget limits must be positive, or 0 for no limit");
+    }
+    this.timeoutMillis = timeoutMillis;
+    this.maxNodes = maxNodes;
+  }
+
+  public long timeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public long maxNodes() {
+    return maxNodes;
+  }
+
+  public boolean isUnlimited() {
+    return timeoutMillis == 0 && maxNodes == 0;
+  }
+
+  /**
+   * Starts spending the budget for a file: the time it takes is measured from now on.
+   * @return the budget left to the file
+   */
+  public Meter start() {
+    return new Meter(this, System.nanoTime());
+  }
+
+  /**
+   * What is left of the budget of a file.
+   */
+  public static final class Meter {
+    private final AnalysisBudget budget;
+    private final long deadline;
+    private long nodesLeft;
+    private int untilClock = CLOCK_PERIOD;
+
+    private Meter(AnalysisBudget budget, long startNanos) {
+      this.budget = budget;
+      this.deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(budget.timeoutMillis);
+      this.nodesLeft = budget.maxNodes == 0 ? Long.MAX_VALUE : budget.maxNodes;
+    }
+
+    /**
+     * Spends one node of the budget. Walks that do not go through an {@link OpenApiVisitorContext}, e.g. over the
+     * tokens of a file, spend the budget directly.
+     * @throws BudgetExceededException if the file visited too many nodes or took too long
+     */
+    public void spend() {
+      if (--nodesLeft < 0) {
+        throw new BudgetExceededException("more than " + budget.maxNodes + " nodes visited");
+      }
+      if (--untilClock == 0) {
+        untilClock = CLOCK_PERIOD;
+        if (budget.timeoutMillis > 0 && System.nanoTime() - deadline > 0) {
+          throw new BudgetExceededException("more than " + budget.timeoutMillis + " ms spent");
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.nio.file.Path;
+import javax.annotation.CheckForNull;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+/**
+ * Provides the other files that the references of a file can point to, e.g. {@code ../common/errors.yaml#/Error}.
+ * Implementations are shared by the files analyzed by a thread. The documents they return are read by the checks of
+ * these files, and must not be read by other threads meanwhile.
+ */
+public interface ExternalDocuments {
+  /**
+   * @param path the normalized location of the document
+   * @return the root of the document, or {@code null} if it cannot be read or parsed
+   */
+  @CheckForNull
+  JsonNode get(Path path);
+}
@@ -0,0 +1,90 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.sonar.sslr.api.Token;
+import java.util.Objects;
+import javax.annotation.Nullable;
+
+/**
+ * The identity of an issue raised by a check: its primary range and message. It is computed once, when the issue is
+ * raised, so that looking up duplicates neither goes through the locations again nor depends on the secondary
+ * locations and cost that the check adds afterwards.
+ * <p>
+ * When the end of the range is computed from a token, the token stands for it, compared by identity: the end of a
+ * token is the same whatever the location, and computing it would scan the value of the token for each issue.
+ */
+final class IssueKey {
+  private final int startLine;
+  private final int startLineOffset;
+  private final Token lastToken;
+  private final int endLine;
+  private final int endLineOffset;
+  private final String message;
+  private final int hash;
+
+  private IssueKey(int startLine, int startLineOffset, @Nullable Token lastToken, int endLine, int endLineOffset,
+    @Nullable String message) {
+    this.startLine = startLine;
+    this.startLineOffset = startLineOffset;
+    this.lastToken = lastToken;
+    this.endLine = endLine;
+    this.endLineOffset = endLineOffset;
+    this.message = message;
+    int h = startLine;
+    h = 31 * h + startLineOffset;
+    h = 31 * h + System.identityHashCode(lastToken);
+    h = 31 * h + endLine;
+    h = 31 * h + endLineOffset;
+    this.hash = 31 * h + Objects.hashCode(message);
+  }
+
+  static IssueKey of(IssueLocation location) {
+    Token lastToken = location.lastToken();
+    if (lastToken != null) {
+      return new IssueKey(location.startLine(), location.startLineOffset(), lastToken, 0, 0, location.message());
+    }
+    return new IssueKey(location.startLine(), location.startLineOffset(), null, location.endLine(),
+      location.endLineOffset(), location.message());
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof IssueKey)) {
+      return false;
+    }
+    IssueKey other = (IssueKey) o;
+    return hash == other.hash
+      && startLine == other.startLine
+      && startLineOffset == other.startLineOffset
+      && lastToken == other.lastToken
+      && endLine == other.endLine
+      && endLineOffset == other.endLineOffset
+      && Objects.equals(message, other.message);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
@@ -54,6 +54,14 @@ public abstract class IssueLocation {
     return new PreciseIssueLocation(startNode, endNode, message);
   }
 
+  /**
+   * Creates a location from its coordinates, for instance to restore a location computed in a previous analysis.
+   * Undefined lines and offsets are expressed with {@link #UNDEFINED_LINE} and {@link #UNDEFINED_OFFSET}.
+   */
+  public static IssueLocation atRange(@Nullable String message, int startLine, int startLineOffset, int endLine, int endLineOffset, String pointer) {
+    return new RangeIssueLocation(message, startLine, startLineOffset, endLine, endLineOffset, pointer);
+  }
+
   @CheckForNull
   public String message() {
     return message;
@@ -98,7 +106,36 @@ public abstract class IssueLocation {
     return EMPTY_POINTER;
   }
 
+  /**
+   * Releases the tree this location was computed on, so that keeping the location, e.g. until it is saved, does not
+   * keep the whole tree in memory.
+   * @param keepPointer whether to compute the pointer first. If not, {@link #pointer()} returns {@link #EMPTY_POINTER}
+   *                    from then on.
+   */
+  public void detach(boolean keepPointer) {
+    // only precise locations refer to the tree
+  }
+
+  /**
+   * @return the node this location was computed on, as long as the location is not detached from its tree
+   */
+  @CheckForNull
+  JsonNode node() {
+    return null;
+  }
+
+  /**
+   * @return the token the range of this location ends with, if the end of the range is computed from it
+   */
+  @CheckForNull
+  Token lastToken() {
+    return null;
+  }
+
 
+  /**
+   * The range covered by a token, whose value can span several lines.
+   */
   public static class TokenLocation {
 
     private final int startLine;
@@ -110,15 +147,27 @@ public abstract class IssueLocation {
       this.startLine = token.getLine();
       this.startLineOffset = token.getColumn();
       String value = token.getOriginalValue();
-      String[] lines = value.split("\r\n|\n|\r", -1);
-
-      if (lines.length > 1) {
-        endLine = token.getLine() + lines.length - 1;
-        endLineOffset = lines[lines.length - 1].length();
+      // a single scan over the value, where \r\n, \n and \r all end a line
+      int length = value.length();
+      int lineBreaks = 0;
+      int lastLineStart = 0;
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c == '\r' || c == '\n') {
+          if (c == '\r' && i + 1 < length && value.charAt(i + 1) == '\n') {
+            i++;
+          }
+          lineBreaks++;
+          lastLineStart = i + 1;
+        }
+      }
 
+      if (lineBreaks > 0) {
+        this.endLine = startLine + lineBreaks;
+        this.endLineOffset = length - lastLineStart;
       } else {
         this.endLine = this.startLine;
-        this.endLineOffset = this.startLineOffset + token.getOriginalValue().length();
+        this.endLineOffset = this.startLineOffset + length;
       }
     }
 
@@ -140,53 +189,99 @@ public abstract class IssueLocation {
 
   }
 
+  /**
+   * A location between two tokens. Only the tokens are read when the location is created: the end of the last token
+   * and the pointer of the node are computed on first use, as most locations are never asked for their pointer. The
+   * node is released once the pointer is computed, or once the location is {@linkplain #detach(boolean) detached}.
+   */
   private static class PreciseIssueLocation extends IssueLocation {
 
-    private final TokenLocation firstTokenLocation;
-    private final TokenLocation lastTokenLocation;
-    private final String pointer;
+    private final Token firstToken;
+    private final Token lastToken;
+    private final boolean unescapePointer;
+    // released once the pointer is computed, so that the location no longer retains the tree
+    private JsonNode pointerNode;
+    private String pointer;
+    private TokenLocation lastTokenLocation;
 
     public PreciseIssueLocation(JsonNode node, @Nullable String message) {
       super(message);
-      this.firstTokenLocation = new TokenLocation(node.getToken());
-      this.lastTokenLocation = new TokenLocation(node.getLastToken());
-      this.pointer = node.getPointer()
-          .replace("~1", "/")
-          .replace("~0", "~")
-          .replace("paths//", "paths/");
+      this.firstToken = node.getToken();
+      this.lastToken = node.getLastToken();
+      this.pointerNode = node;
+      this.unescapePointer = true;
     }
 
     public PreciseIssueLocation(JsonNode startNode, JsonNode endNode, @Nullable String message) {
       super(message);
-      this.firstTokenLocation = new TokenLocation(startNode.getToken());
-      this.lastTokenLocation = new TokenLocation(endNode.getLastToken());
-      this.pointer = startNode.getPointer();
+      this.firstToken = startNode.getToken();
+      this.lastToken = endNode.getLastToken();
+      this.pointerNode = startNode;
+      this.unescapePointer = false;
     }
 
     @Override
     public int startLine() {
-      return firstTokenLocation.startLine();
+      return firstToken.getLine();
     }
 
     @Override
     public int startLineOffset() {
-      return firstTokenLocation.startLineOffset();
+      return firstToken.getColumn();
     }
 
     @Override
     public int endLine() {
-      return lastTokenLocation.endLine();
+      return lastTokenLocation().endLine();
     }
 
     @Override
     public int endLineOffset() {
-      return lastTokenLocation.endLineOffset();
+      return lastTokenLocation().endLineOffset();
+    }
+
+    @Override
+    JsonNode node() {
+      return pointerNode;
+    }
+
+    @Override
+    Token lastToken() {
+      return lastToken;
+    }
+
+    private TokenLocation lastTokenLocation() {
+      if (lastTokenLocation == null) {
+        lastTokenLocation = new TokenLocation(lastToken);
+      }
+      return lastTokenLocation;
     }
 
     @Override
     public String pointer() {
+      if (pointer == null) {
+        String nodePointer = pointerNode.getPointer();
+        if (unescapePointer) {
+          nodePointer = nodePointer
+            .replace("~1", "/")
+            .replace("~0", "~")
+            .replace("paths//", "paths/");
+        }
+        pointer = nodePointer;
+        pointerNode = null;
+      }
       return pointer;
     }
+
+    @Override
+    public void detach(boolean keepPointer) {
+      if (keepPointer) {
+        pointer();
+      } else if (pointer == null) {
+        pointer = EMPTY_POINTER;
+        pointerNode = null;
+      }
+    }
   }
 
 
@@ -221,6 +316,49 @@ public abstract class IssueLocation {
 
   }
 
+  private static class RangeIssueLocation extends IssueLocation {
+
+    private final int startLine;
+    private final int startLineOffset;
+    private final int endLine;
+    private final int endLineOffset;
+    private final String pointer;
+
+    public RangeIssueLocation(@Nullable String message, int startLine, int startLineOffset, int endLine, int endLineOffset, String pointer) {
+      super(message);
+      this.startLine = startLine;
+      this.startLineOffset = startLineOffset;
+      this.endLine = endLine;
+      this.endLineOffset = endLineOffset;
+      this.pointer = pointer;
+    }
+
+    @Override
+    public int startLine() {
+      return startLine;
+    }
+
+    @Override
+    public int startLineOffset() {
+      return startLineOffset;
+    }
+
+    @Override
+    public int endLine() {
+      return endLine;
+    }
+
+    @Override
+    public int endLineOffset() {
+      return endLineOffset;
+    }
+
+    @Override
+    public String pointer() {
+      return pointer;
+    }
+  }
+
   private static class FileLevelIssueLocation extends IssueLocation {
 
     public FileLevelIssueLocation(@Nullable String message) {
@@ -19,13 +19,16 @@
  */
 package org.sonar.plugins.openapi.api;
 
+import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.AstNodeType;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
 import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
 import org.sonar.sslr.yaml.grammar.JsonNode;
@@ -38,63 +41,165 @@ import static org.sonar.sslr.yaml.grammar.YamlGrammar.FLOW_MAPPING;
  *
  * <ul>
  *  <li>{@code x-nosonar} disables a rule (or a set of rules) for the whole document (valid on document root only).
- *  <li>{@code x-sonar-disable} disables a rule (or a set of rules) for the current node only.
- *  <li>{@code x-sonar-enable} enables a rule (or a set of rules) for the current node only.
+ *  <li>{@code x-sonar-disable} disables a rule (or a set of rules) for the current node and all its descendants.
+ *  <li>{@code x-sonar-enable} enables a rule (or a set of rules) for the current node and all its descendants.
  * </ul>
  *
- * When a rule is both enabled and disabled by {@code x-sonar-[dis|en]able}, it is considered enabled.
+ * When a rule is both enabled and disabled by {@code x-sonar-[dis|en]able} on the same node, it is considered enabled.
+ * A marker on a descendant node takes precedence over the markers of its ancestors.
+ * <p>
+ * Each node holding a marker opens a {@link Scope}, which records the rules disabled in its subtree as a bit set over
+ * the rules mentioned in the document. Visitors descending the tree can keep track of the innermost scope with
+ * {@link #enter(Scope, JsonNode)} and {@link #leave(Scope, JsonNode)}, so that checking a rule does not require to look
+ * the node up.
+ * <p>
+ * As it walks all the document, the collector also fills the {@link SubtreeIndex} of the document.
  */
 public class NoSonarCollector extends OpenApiVisitor {
-  private final Set<String> globallyDisabled = new HashSet<>();
-  private final Map<String, Set<String>> disabledByPointer = new HashMap<>();
-  private final Map<String, Set<String>> enabledByPointer = new HashMap<>();
-
-  public boolean isEnabled(String pointer, String ruleId) {
-    Set<String> enabled = enabledByPointer.getOrDefault(pointer, Collections.emptySet());
-    Set<String> disabled = disabledByPointer.getOrDefault(pointer, Collections.emptySet());
-    if (globallyDisabled.contains(ruleId)) {
-      return enabled.contains(ruleId);
+  private final Map<String, Integer> ruleIndexes = new HashMap<>();
+  private final Map<AstNode, Scope> scopes = new IdentityHashMap<>();
+  private Scope rootScope = new Scope(null, null, new BitSet());
+  private Scope current = rootScope;
+  private final SubtreeIndex subtrees = new SubtreeIndex();
+
+  /**
+   * @return {@code true} if at least one rule is disabled or enabled somewhere in the document
+   */
+  public boolean hasSuppressions() {
+    return !ruleIndexes.isEmpty();
+  }
+
+  /**
+   * @param ruleId the rule to look for
+   * @return {@code true} if the rule is disabled or enabled somewhere in the document. When it is not, the rule is
+   * enabled everywhere.
+   */
+  public boolean mentions(String ruleId) {
+    return ruleIndexes.containsKey(ruleId);
+  }
+
+  /**
+   * @param node a node of the scanned document
+   * @param ruleId the rule to look for
+   * @return {@code true} if the rule is enabled on this node
+   */
+  public boolean isEnabled(JsonNode node, String ruleId) {
+    return isEnabled(scopeOf(node), ruleId);
+  }
+
+  boolean isEnabled(Scope scope, String ruleId) {
+    Integer index = ruleIndexes.get(ruleId);
+    return index == null || !scope.disabled.get(index);
+  }
+
+  Scope rootScope() {
+    return rootScope;
+  }
+
+  SubtreeIndex subtrees() {
+    return subtrees;
+  }
+
+  /**
+   * @param node a node of the scanned document
+   * @return the innermost scope containing the node, found by walking up its ancestors
+   */
+  Scope scopeOf(JsonNode node) {
+    for (AstNode n = node; n != null; n = n.getParent()) {
+      Scope scope = scopes.get(n);
+      if (scope != null) {
+        return scope;
+      }
     }
-    return !disabled.contains(ruleId) || enabled.contains(ruleId);
+    return rootScope;
+  }
+
+  /**
+   * @param scope the innermost scope of the parent of {@code node}
+   * @param node the node being entered
+   * @return the innermost scope of {@code node}
+   */
+  Scope enter(Scope scope, JsonNode node) {
+    if (scopes.isEmpty()) {
+      return scope;
+    }
+    Scope nodeScope = scopes.get(node);
+    return nodeScope == null ? scope : nodeScope;
+  }
+
+  /**
+   * @param scope the innermost scope of {@code node}
+   * @param node the node being left
+   * @return the innermost scope of the parent of {@code node}
+   */
+  Scope leave(Scope scope, JsonNode node) {
+    return scope.owner == node ? scope.parent : scope;
   }
 
   @Override
   protected boolean isSubscribed(AstNodeType nodeType) {
+    return true;
+  }
+
+  private static boolean canHoldMarkers(AstNodeType nodeType) {
     return nodeType instanceof OpenApi2Grammar || nodeType instanceof OpenApi3Grammar || nodeType == BLOCK_MAPPING || nodeType == FLOW_MAPPING;
   }
 
   @Override
   protected void visitFile(JsonNode root) {
+    ruleIndexes.clear();
+    scopes.clear();
+    subtrees.clear();
+    BitSet disabled = new BitSet();
     JsonNode node = root.get("x-nosonar");
-    if (node.isMissing()) {
-      return;
+    if (!node.isMissing()) {
+      for (String ruleId : extractRuleIds(node)) {
+        disabled.set(indexOf(ruleId));
+      }
     }
-    Set<String> disabled = extractRuleIds(node);
-    globallyDisabled.addAll(disabled);
+    rootScope = new Scope(null, null, disabled);
+    current = rootScope;
   }
 
   @Override
   protected void visitNode(JsonNode node) {
-    visitSonarDisable(node);
-    visitSonarEnable(node);
-  }
-
-  private void visitSonarDisable(JsonNode parent) {
-    JsonNode node = parent.get("x-sonar-disable");
-    if (node.isMissing()) {
+    subtrees.enter(node);
+    if (!canHoldMarkers(node.getType())) {
       return;
     }
-    Set<String> disabled = extractRuleIds(node);
-    disabledByPointer.put(parent.getPointer(), disabled);
+    JsonNode disableNode = node.get("x-sonar-disable");
+    JsonNode enableNode = node.get("x-sonar-enable");
+    if (disableNode.isMissing() && enableNode.isMissing()) {
+      return;
+    }
+    BitSet disabled = (BitSet) current.disabled.clone();
+    if (!disableNode.isMissing()) {
+      for (String ruleId : extractRuleIds(disableNode)) {
+        disabled.set(indexOf(ruleId));
+      }
+    }
+    if (!enableNode.isMissing()) {
+      for (String ruleId : extractRuleIds(enableNode)) {
+        disabled.clear(indexOf(ruleId));
+      }
+    }
+    current = new Scope(node, current, disabled);
+    scopes.put(node, current);
   }
 
-  private void visitSonarEnable(JsonNode parent) {
-    JsonNode node = parent.get("x-sonar-enable");
-    if (node.isMissing()) {
-      return;
+  @Override
+  protected void leaveNode(JsonNode node) {
+    subtrees.leave(node);
+    current = leave(current, node);
+  }
+
+  private int indexOf(String ruleId) {
+    Integer index = ruleIndexes.get(ruleId);
+    if (index == null) {
+      index = ruleIndexes.size();
+      ruleIndexes.put(ruleId, index);
     }
-    Set<String> enabled = extractRuleIds(node);
-    enabledByPointer.put(parent.getPointer(), enabled);
+    return index;
   }
 
   private static Set<String> extractRuleIds(JsonNode node) {
@@ -106,4 +211,19 @@ public class NoSonarCollector extends OpenApiVisitor {
     }
     return disabled;
   }
+
+  /**
+   * The rules disabled on a node holding a marker and on its descendants, unless a descendant opens its own scope.
+   */
+  static final class Scope {
+    private final JsonNode owner;
+    private final Scope parent;
+    private final BitSet disabled;
+
+    private Scope(@Nullable JsonNode owner, @Nullable Scope parent, BitSet disabled) {
+      this.owner = owner;
+      this.parent = parent;
+      this.disabled = disabled;
+    }
+  }
 }
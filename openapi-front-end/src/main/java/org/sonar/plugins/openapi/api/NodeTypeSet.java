@@ -0,0 +1,71 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.sonar.sslr.api.AstNodeType;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
+import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
+
+/**
+ * Immutable set of node types. Lookups of OpenAPI grammar rules are a bit test on their ordinal, so that they can be
+ * done on every node of the tree without hashing nor allocating.
+ */
+final class NodeTypeSet {
+  private final EnumSet<OpenApi2Grammar> v2Types = EnumSet.noneOf(OpenApi2Grammar.class);
+  private final EnumSet<OpenApi3Grammar> v3Types = EnumSet.noneOf(OpenApi3Grammar.class);
+  private final Set<AstNodeType> otherTypes = new HashSet<>();
+
+  private NodeTypeSet(Collection<AstNodeType> types) {
+    for (AstNodeType type : types) {
+      if (type instanceof OpenApi2Grammar) {
+        v2Types.add((OpenApi2Grammar) type);
+      } else if (type instanceof OpenApi3Grammar) {
+        v3Types.add((OpenApi3Grammar) type);
+      } else {
+        otherTypes.add(type);
+      }
+    }
+  }
+
+  static NodeTypeSet copyOf(Collection<AstNodeType> types) {
+    return new NodeTypeSet(types);
+  }
+
+  /**
+   * @return {@code true} if the set only holds rules of the OpenAPI grammars
+   */
+  boolean hasRulesOnly() {
+    return otherTypes.isEmpty();
+  }
+
+  boolean contains(AstNodeType type) {
+    if (type instanceof OpenApi2Grammar) {
+      return v2Types.contains(type);
+    } else if (type instanceof OpenApi3Grammar) {
+      return v3Types.contains(type);
+    } else {
+      return !otherTypes.isEmpty() && otherTypes.contains(type);
+    }
+  }
+}
@@ -20,7 +20,13 @@
 package org.sonar.plugins.openapi.api;
 
 import com.sonar.sslr.api.AstNodeType;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import org.sonar.check.Rule;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 
@@ -28,7 +34,12 @@ import org.sonar.sslr.yaml.grammar.JsonNode;
  * Base class for verification rules.
  */
 public class OpenApiCheck extends OpenApiVisitor {
-  private Set<PreciseIssue> issues = new LinkedHashSet<>();
+  private final List<PreciseIssue> issues = new ArrayList<>();
+  private final Set<IssueKey> issueKeys = new HashSet<>();
+  private int maxIssues = 0;
+  private int droppedIssues = 0;
+  private NodeTypeSet subscriptions;
+  private Optional<String> ruleId;
 
   /**
    * Scan the file provided in the context. If no file is provided, does nothing. This method clears the previous state
@@ -37,16 +48,59 @@ public class OpenApiCheck extends OpenApiVisitor {
    * @return the list of collected issues
    */
   public List<PreciseIssue> scanFileForIssues(OpenApiVisitorContext context) {
-    issues.clear();
+    clearIssues();
     scanFile(context);
-    return Collections.unmodifiableList(new ArrayList<>(issues));
+    return collectedIssues();
+  }
+
+  void clearIssues() {
+    issues.clear();
+    issueKeys.clear();
+    droppedIssues = 0;
+  }
+
+  List<PreciseIssue> collectedIssues() {
+    List<PreciseIssue> collected = new ArrayList<>(issues.size() + 1);
+    handOverIssues(collected::add);
+    return Collections.unmodifiableList(collected);
+  }
+
+  /**
+   * Hands the issues raised on the last scanned file over to the consumer, in the order they were raised, followed by
+   * a summary issue if some of them were dropped because of {@link #setMaxIssues(int)}. The check no longer holds them
+   * afterwards.
+   */
+  void handOverIssues(Consumer<PreciseIssue> consumer) {
+    for (PreciseIssue issue : issues) {
+      consumer.accept(issue);
+    }
+    if (droppedIssues > 0) {
+      String message = String.format("%d more issues of this rule are not reported, only the first %d of a file are.",
+        droppedIssues, maxIssues);
+      consumer.accept(new PreciseIssue(IssueLocation.atFileLevel(message)));
+    }
+    clearIssues();
+  }
+
+  /**
+   * Limits the number of issues the check reports on a file, so that a generated contract with many repetitions of the
+   * same flaw does not flood the analysis. Beyond the limit, issues are only counted, and a single issue on the file
+   * tells how many were dropped.
+   * @param maxIssues the maximum number of issues on a file, or 0 for no limit
+   */
+  public final void setMaxIssues(int maxIssues) {
+    if (maxIssues < 0) {
+      throw new IllegalArgumentException("The maximum number of issues must be positive, or 0 for no limit");
+    }
+    this.maxIssues = maxIssues;
   }
 
   /**
    * The kind of nodes the visitor is interested in. Override and return a non-empty set if you want to be notified
    * on {@link #visitNode(JsonNode)} and {@link #leaveNode(JsonNode)}.
    * <p>
-   * By default, returns an empty set.
+   * By default, returns an empty set. The set is read once, the first time the check is run: it must not
+   * change afterwards.
    * @return the list of node types to consider in the analysis
    */
   public Set<AstNodeType> subscribedKinds() {
@@ -55,38 +109,56 @@ public class OpenApiCheck extends OpenApiVisitor {
 
   @Override
   protected final boolean isSubscribed(AstNodeType nodeType) {
-    return subscribedKinds().contains(nodeType);
+    return subscriptions().contains(nodeType);
+  }
+
+  @Override
+  final boolean subscribesToRulesOnly() {
+    return subscriptions().hasRulesOnly();
+  }
+
+  private NodeTypeSet subscriptions() {
+    if (subscriptions == null) {
+      subscriptions = NodeTypeSet.copyOf(subscribedKinds());
+    }
+    return subscriptions;
   }
 
   @Override
   protected final boolean isSkipped(JsonNode node) {
-    Optional<String> ruleId = getRuleId();
-    if (ruleId.isPresent()) {
-      return !getContext().isEnabled(ruleId.get(), node);
-    } else {
+    OpenApiVisitorContext context = getContext();
+    if (!context.hasSuppressions()) {
       return false;
     }
+    Optional<String> id = getRuleId();
+    return id.isPresent() && !context.isEnabled(id.get(), node);
   }
 
+  /**
+   * The key of the rule implemented by this check, as declared by its {@link Rule} annotation. The annotation is only
+   * read once per check instance.
+   * @return the rule key, or an empty value if the check is not annotated
+   */
   public final Optional<String> getRuleId() {
-    Rule rule = this.getClass().getAnnotation(Rule.class);
-    if (rule == null) {
-      return Optional.empty();
-    } else {
-      return Optional.of(rule.key());
+    if (ruleId == null) {
+      Rule rule = this.getClass().getAnnotation(Rule.class);
+      ruleId = rule == null ? Optional.empty() : Optional.of(rule.key());
     }
+    return ruleId;
   }
 
   /**
-   * Record an issue on the supplied node's exact location.
+   * Record an issue on the supplied node's exact location. The issue on a node of another file, reached through a
+   * reference, is recorded on the reference of the scanned file instead.
    * @param message Message to record
    * @param node Location of the issue
    * @return the created issue, for customization
    */
   protected final PreciseIssue addIssue(String message, JsonNode node) {
-    PreciseIssue newIssue = new PreciseIssue(IssueLocation.preciseLocation(message, node));
-    issues.add(newIssue);
-    return newIssue;
+    OpenApiVisitorContext context = getContext();
+    JsonNode anchor = context == null ? node : context.anchor(node);
+    IssueLocation location = anchor == null ? IssueLocation.atFileLevel(message) : IssueLocation.preciseLocation(message, anchor);
+    return record(location).anchoredIn(context);
   }
 
   /**
@@ -96,8 +168,22 @@ public class OpenApiCheck extends OpenApiVisitor {
    * @return the created issue, for customization
    */
   protected final PreciseIssue addLineIssue(String message, int lineNumber) {
-    PreciseIssue newIssue = new PreciseIssue(IssueLocation.atLineLevel(message, lineNumber));
-    issues.add(newIssue);
+    return record(IssueLocation.atLineLevel(message, lineNumber)).anchoredIn(getContext());
+  }
+
+  /**
+   * Keeps the issue unless an issue with the same location and message was already raised on the file, or the limit
+   * of issues is reached. The issue is returned in any case, for the check to customize it.
+   */
+  private PreciseIssue record(IssueLocation location) {
+    PreciseIssue newIssue = new PreciseIssue(location);
+    if (issueKeys.add(IssueKey.of(location))) {
+      if (maxIssues == 0 || issues.size() < maxIssues) {
+        issues.add(newIssue);
+      } else {
+        droppedIssues++;
+      }
+    }
     return newIssue;
   }
 
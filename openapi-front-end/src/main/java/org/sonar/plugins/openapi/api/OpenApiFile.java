@@ -19,11 +19,27 @@
  */
 package org.sonar.plugins.openapi.api;
 
+import java.nio.file.Path;
+import javax.annotation.CheckForNull;
+
 /**
  * A file being parsed by the scanner.
  */
 public interface OpenApiFile {
+  /**
+   * Reads the content of the file. Implementations do not keep it: each call reads the file again, so that the source
+   * text of large files is only held in memory while a check that explicitly needs it is using it.
+   */
   String content();
 
   String fileName();
+
+  /**
+   * @return the location of the file, against which references to other files are resolved, or {@code null} if the
+   * file is not on disk
+   */
+  @CheckForNull
+  default Path path() {
+    return null;
+  }
 }
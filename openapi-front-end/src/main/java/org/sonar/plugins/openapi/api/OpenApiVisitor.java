@@ -21,20 +21,28 @@ package org.sonar.plugins.openapi.api;
 
 import com.sonar.sslr.api.AstNodeType;
 import com.sonar.sslr.api.Token;
-import java.util.List;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 
 /**
  * Base visitor for the OpenAPI checks.
  */
 public class OpenApiVisitor {
+  private static final int SUBSCRIBED = 1;
+  private static final int SKIPPED = 2;
 
   private OpenApiVisitorContext context;
+  private TreeWalker walker;
+  // set by skipChildren() while visiting a node, read by the walk once the visit is done
+  boolean childrenSkipped;
 
   public final OpenApiVisitorContext getContext() {
     return context;
   }
 
+  void setContext(OpenApiVisitorContext context) {
+    this.context = context;
+  }
+
   /**
    * Called before visiting a node. Gives a chance to decide if this node type interests the visitor.
    * @param nodeType the type of node that will be visited
@@ -77,6 +85,25 @@ public class OpenApiVisitor {
     // empty default implementation
   }
 
+  /**
+   * Stops the visit below the node being visited: when called from {@link #visitNode(JsonNode)}, this visitor is not
+   * notified of the descendants nor of the tokens of the node, and {@link #leaveNode(JsonNode)} follows right away.
+   * The other visitors sharing the traversal still visit them. This saves walking large subtrees, like examples, that
+   * the visitor already inspected or does not care about.
+   */
+  protected final void skipChildren() {
+    childrenSkipped = true;
+  }
+
+  /**
+   * Tells whether the visitor only subscribes to the rules of the OpenAPI grammars, so that the subtrees holding no
+   * such rule can be skipped when it does not visit tokens either.
+   * @return {@code false} by default, as {@link #isSubscribed(AstNodeType)} can accept any type
+   */
+  boolean subscribesToRulesOnly() {
+    return false;
+  }
+
   /**
    * Called when then visitor is done visiting the children of a node matching {@link #isSubscribed(AstNodeType)}.
    * @param node the node that has been visited
@@ -98,7 +125,7 @@ public class OpenApiVisitor {
    * @param context the description of the file to scan
    */
   public void scanFile(OpenApiVisitorContext context) {
-    this.context = context;
+    setContext(context);
     JsonNode rootNode = context.rootTree();
     if (rootNode != null) {
       visitFile(rootNode);
@@ -108,32 +135,52 @@ public class OpenApiVisitor {
   }
 
   /**
-   * Visit the AST node.
+   * Visit the AST node and all its descendants. The tree is walked with an explicit stack, so that deeply nested
+   * documents do not exhaust the stack of the thread: this method is called once for {@code node}, not for each of its
+   * descendants.
    * @param node the node to visit
    */
   public void scanNode(JsonNode node) {
-    boolean isSubscribedType = isSubscribed(node.getType());
-    boolean isSkipped = isSkipped(node);
-
-    if (isSubscribedType && !isSkipped) {
-      visitNode(node);
+    if (walker == null) {
+      walker = new VisitorWalker();
     }
+    walker.walk(node);
+  }
 
-    List<JsonNode> children = node.getJsonChildren();
-    if (children.isEmpty() && !isSkipped) {
-      for (Token token : node.getTokens()) {
-        visitToken(token);
+  private final class VisitorWalker extends TreeWalker {
+    @Override
+    int enter(JsonNode node) {
+      context.enterNode(node);
+      int state = isSubscribed(node.getType()) ? SUBSCRIBED : 0;
+      if (isSkipped(node)) {
+        state |= SKIPPED;
       }
-    } else {
-      for (JsonNode child : children) {
-        scanNode(child);
+      if (state == SUBSCRIBED) {
+        childrenSkipped = false;
+        visitNode(node);
+        if (childrenSkipped) {
+          state |= SKIP_CHILDREN;
+        }
       }
+      return state;
     }
 
-    if (isSubscribedType && !isSkipped) {
-      leaveNode(node);
+    @Override
+    void visitLeaf(JsonNode node, int state) {
+      if ((state & SKIPPED) == 0) {
+        for (Token token : node.getTokens()) {
+          visitToken(token);
+        }
+      }
     }
-  }
 
+    @Override
+    void leave(JsonNode node, int state) {
+      if (state == SUBSCRIBED) {
+        leaveNode(node);
+      }
+      context.leaveNode(node);
+    }
+  }
 
 }
@@ -20,8 +20,11 @@
 package org.sonar.plugins.openapi.api;
 
 import com.sonar.sslr.api.RecognitionException;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.sslr.yaml.grammar.JsonNode;
 import org.sonar.sslr.yaml.grammar.ValidationIssue;
@@ -32,23 +35,53 @@ public class OpenApiVisitorContext {
   private final RecognitionException parsingException;
   private final NoSonarCollector collector = new NoSonarCollector();
   private final List<ValidationIssue> issues;
+  // innermost suppression scope of the node being visited, null until the collector is done
+  private NoSonarCollector.Scope scope;
+  private JsonNode scopeNode;
+  private ReferenceIndex references;
+  private final ReferenceResolver resolver;
+  private AnalysisBudget.Meter budget;
 
   public OpenApiVisitorContext(JsonNode rootTree, List<ValidationIssue> issues, OpenApiFile openApiFile) {
-    this(rootTree, openApiFile, issues, null);
+    this(rootTree, openApiFile, issues, null, null, null);
+  }
+
+  /**
+   * @param documents the documents that references to other files are resolved against, or {@code null} to only
+   *                  resolve references within the file
+   */
+  public OpenApiVisitorContext(JsonNode rootTree, List<ValidationIssue> issues, OpenApiFile openApiFile, @Nullable ExternalDocuments documents) {
+    this(rootTree, openApiFile, issues, null, documents, null);
+  }
+
+  /**
+   * @param documents the documents that references to other files are resolved against, or {@code null} to only
+   *                  resolve references within the file
+   * @param budget the budget left to the file, already spent by the walk collecting the suppressions, or {@code null}
+   *               for no limit
+   * @throws BudgetExceededException if collecting the suppressions exceeds the budget
+   */
+  public OpenApiVisitorContext(JsonNode rootTree, List<ValidationIssue> issues, OpenApiFile openApiFile, @Nullable ExternalDocuments documents,
+    @Nullable AnalysisBudget.Meter budget) {
+    this(rootTree, openApiFile, issues, null, documents, budget);
   }
 
   public OpenApiVisitorContext(OpenApiFile openApiFile, RecognitionException parsingException) {
-    this(null, openApiFile, Collections.emptyList(), parsingException);
+    this(null, openApiFile, Collections.emptyList(), parsingException, null, null);
   }
 
-  private OpenApiVisitorContext(@Nullable JsonNode rootTree, OpenApiFile openApiFile, List<ValidationIssue> issues, @Nullable RecognitionException parsingException) {
+  private OpenApiVisitorContext(@Nullable JsonNode rootTree, OpenApiFile openApiFile, List<ValidationIssue> issues, @Nullable RecognitionException parsingException,
+    @Nullable ExternalDocuments documents, @Nullable AnalysisBudget.Meter budget) {
     this.rootTree = rootTree;
     this.openApiFile = openApiFile;
     this.issues = issues;
     this.parsingException = parsingException;
+    this.budget = budget;
+    this.resolver = new ReferenceResolver(rootTree, openApiFile.path(), documents);
     if (rootTree != null) {
       this.collector.scanFile(this);
     }
+    this.scope = collector.rootScope();
   }
 
   public JsonNode rootTree() {
@@ -67,8 +100,117 @@ public class OpenApiVisitorContext {
     return issues;
   }
 
+  /**
+   * @return the index of the local references of the file, built on first use and shared by all visitors
+   */
+  public ReferenceIndex references() {
+    if (references == null) {
+      references = ReferenceIndex.of(rootTree);
+    }
+    return references;
+  }
+
+  /**
+   * Resolves a node with the resolutions already made in this file, so that each reference is only followed once
+   * whatever the number of visitors that resolve it.
+   * @param node a node of the scanned document
+   * @return the node targeted by {@code node} if it is a reference, {@code node} itself otherwise. A reference that
+   * is part of a cycle of references, or that points to another file that cannot be read, is returned as is.
+   */
+  public JsonNode resolve(JsonNode node) {
+    if (budget != null) {
+      budget.spend();
+    }
+    return resolver.resolve(node);
+  }
+
+  /**
+   * @return the other files that the references resolved so far point to, whether they could be read or not
+   */
+  public Set<Path> externalDocuments() {
+    return resolver.externalDocuments();
+  }
+
+  /**
+   * Finds where to report something about a node, such as an issue, in the scanned file. Resolving references can lead
+   * to nodes of other files, whose positions have no meaning in the scanned file.
+   * @param node a node of the scanned document, or of another document reached by {@link #resolve(JsonNode)}
+   * @return the node itself if it belongs to the scanned document, the reference of the scanned document leading to it
+   * if it belongs to another document, or {@code null} if it was reached otherwise
+   */
+  @CheckForNull
+  public JsonNode anchor(JsonNode node) {
+    return resolver.anchor(node);
+  }
+
+  /**
+   * @param node a node of the scanned document
+   * @return {@code true} if the node is a reference that ends up referring to itself
+   */
+  public boolean isCyclic(JsonNode node) {
+    return resolver.isCyclic(node);
+  }
+
+  /**
+   * @return {@code true} if the file holds at least one {@code x-nosonar}, {@code x-sonar-disable} or
+   * {@code x-sonar-enable} marker, {@code false} if all rules are enabled on all nodes
+   */
+  public boolean hasSuppressions() {
+    return collector.hasSuppressions();
+  }
+
+  /**
+   * @param ruleId the rule to look for
+   * @param node a node of the scanned document
+   * @return {@code true} if the rule is not suppressed on this node. The answer is immediate for the node being
+   * visited, and requires to walk up the ancestors of any other node.
+   */
   public boolean isEnabled(String ruleId, JsonNode node) {
-    return collector.isEnabled(node.getPointer(), ruleId);
+    if (!collector.mentions(ruleId)) {
+      return true;
+    }
+    NoSonarCollector.Scope nodeScope = node == scopeNode ? scope : collector.scopeOf(node);
+    return collector.isEnabled(nodeScope, ruleId);
+  }
+
+  /**
+   * Limits what the visitors can spend on this file from now on: each node they enter and each reference they resolve
+   * is taken from the budget, and a {@link BudgetExceededException} is thrown once it is exhausted.
+   * @param budget the budget left to the file, or {@code null} for no limit
+   */
+  public void setBudget(@Nullable AnalysisBudget.Meter budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * @return the grammar rules found beneath the nodes of the file, gathered with the suppressions
+   */
+  SubtreeIndex subtrees() {
+    return collector.subtrees();
+  }
+
+  /**
+   * Keep track of the suppression scope while descending the tree. Must be balanced with {@link #leaveNode(JsonNode)}.
+   * @param node the node being entered
+   */
+  void enterNode(JsonNode node) {
+    if (budget != null) {
+      budget.spend();
+    }
+    if (scope != null) {
+      scope = collector.enter(scope, node);
+      scopeNode = node;
+    }
+  }
+
+  /**
+   * @param node the node being left
+   */
+  void leaveNode(JsonNode node) {
+    if (scope != null) {
+      scope = collector.leave(scope, node);
+      scopeNode = null;
+    }
   }
 
 }
@@ -0,0 +1,372 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import javax.annotation.Nullable;
+import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
+import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+/**
+ * Runs several visitors on a file with a single traversal of the AST.
+ * <p>
+ * Each node is only dispatched to the visitors subscribed to its type, and tokens are only dispatched to the visitors
+ * that override {@link OpenApiVisitor#visitToken(Token)}. The subscriptions of a visitor are resolved once per node
+ * type, so {@link OpenApiVisitor#isSubscribed(AstNodeType)} must only depend on the type it receives. They are then
+ * looked up by grammar rule ordinal, so that dispatching a node does not allocate.
+ * <p>
+ * The children of a node are not walked when no visitor can be interested in them: either because each visitor called
+ * {@link OpenApiVisitor#skipChildren()} while visiting the node or one of its ancestors, or because the
+ * {@link SubtreeIndex} of the file tells that no rule a visitor subscribes to can be found beneath the node. The latter
+ * only applies when all the visitors are checks subscribed to grammar rules only, and none visits tokens.
+ * <p>
+ * Visitors that redefine the traversal itself (by overriding {@link OpenApiVisitor#scanFile(OpenApiVisitorContext)} or
+ * {@link OpenApiVisitor#scanNode(JsonNode)}) cannot share the traversal, and are run on their own.
+ */
+public class OpenApiVisitorDispatcher {
+  private static final OpenApiVisitor[] NO_VISITORS = new OpenApiVisitor[0];
+
+  private final List<OpenApiVisitor> allVisitors;
+  private final List<OpenApiVisitor> standaloneVisitors = new ArrayList<>();
+  private final List<OpenApiVisitor> sharedVisitors = new ArrayList<>();
+  private final OpenApiVisitor[] tokenVisitors;
+  private final OpenApiVisitor[][] v2Subscriptions = new OpenApiVisitor[OpenApi2Grammar.values().length][];
+  private final OpenApiVisitor[][] v3Subscriptions = new OpenApiVisitor[OpenApi3Grammar.values().length][];
+  private final Map<AstNodeType, OpenApiVisitor[]> otherSubscriptions = new IdentityHashMap<>();
+  // whether visitNode was called, for each subscriber of each node being visited, to balance leaveNode calls
+  private boolean[] visitedStack = new boolean[64];
+  private int visitedTop = 0;
+  // the visitors that skip the children of a node being visited, with the depth of this node
+  private final Map<OpenApiVisitor, Integer> skipping = new IdentityHashMap<>();
+  private int depth = 0;
+  // whether a visitor subscribes to a rule beneath the nodes of each rule, for the file being visited
+  private final Map<AstNodeType, Boolean> interestingRules = new IdentityHashMap<>();
+  private Boolean rulesOnly;
+  private final TreeWalker walker = new DispatchingWalker();
+  private OpenApiVisitorContext context;
+  private VisitorProfile profile;
+
+  public OpenApiVisitorDispatcher(List<? extends OpenApiVisitor> visitors) {
+    this.allVisitors = new ArrayList<>(visitors);
+    List<OpenApiVisitor> withTokens = new ArrayList<>();
+    for (OpenApiVisitor visitor : visitors) {
+      if (overrides(visitor, "scanFile", OpenApiVisitorContext.class) || overrides(visitor, "scanNode", JsonNode.class)) {
+        standaloneVisitors.add(visitor);
+      } else {
+        sharedVisitors.add(visitor);
+        if (overrides(visitor, "visitToken", Token.class)) {
+          withTokens.add(visitor);
+        }
+      }
+    }
+    this.tokenVisitors = withTokens.toArray(NO_VISITORS);
+  }
+
+  /**
+   * Measure the time and memory spent in each visitor from now on.
+   * @param profile where to accumulate the measures, or {@code null} to stop profiling
+   */
+  public void setProfile(@Nullable VisitorProfile profile) {
+    this.profile = profile;
+  }
+
+  /**
+   * Visit the AST carried by the supplied {@code context} with all the visitors.
+   * @param context the description of the file to scan
+   */
+  public void scanFile(OpenApiVisitorContext context) {
+    for (OpenApiVisitor visitor : standaloneVisitors) {
+      if (profile == null) {
+        visitor.scanFile(context);
+      } else {
+        profile.start();
+        visitor.scanFile(context);
+        profile.stop(visitor);
+      }
+    }
+    for (OpenApiVisitor visitor : sharedVisitors) {
+      visitor.setContext(context);
+    }
+    JsonNode rootNode = context.rootTree();
+    if (rootNode == null) {
+      return;
+    }
+    for (OpenApiVisitor visitor : sharedVisitors) {
+      visitFile(visitor, rootNode);
+    }
+    if (rulesOnly == null) {
+      rulesOnly = tokenVisitors.length == 0 && sharedVisitors.stream().allMatch(OpenApiVisitor::subscribesToRulesOnly);
+    }
+    visitedTop = 0;
+    depth = 0;
+    skipping.clear();
+    interestingRules.clear();
+    this.context = context;
+    walker.walk(rootNode);
+    for (OpenApiVisitor visitor : sharedVisitors) {
+      leaveFile(visitor, rootNode);
+    }
+  }
+
+  /**
+   * Scan the file provided in the context, and collect the issues raised by each of the checks of this dispatcher.
+   * Visitors that are not checks are run as well, but do not appear in the result.
+   * @param context the analysis context
+   * @return the issues found by each check, in the order the checks were supplied
+   */
+  public Map<OpenApiCheck, List<PreciseIssue>> scanFileForIssues(OpenApiVisitorContext context) {
+    Map<OpenApiCheck, List<PreciseIssue>> result = new LinkedHashMap<>();
+    for (OpenApiVisitor visitor : allVisitors) {
+      if (visitor instanceof OpenApiCheck) {
+        result.put((OpenApiCheck) visitor, new ArrayList<>());
+      }
+    }
+    scanFileForIssues(context, (check, issue) -> result.get(check).add(issue));
+    for (Map.Entry<OpenApiCheck, List<PreciseIssue>> entry : result.entrySet()) {
+      entry.setValue(Collections.unmodifiableList(entry.getValue()));
+    }
+    return result;
+  }
+
+  /**
+   * Scan the file provided in the context, and hand the issues raised by the checks of this dispatcher over to the
+   * consumer, without collecting them first. The issues are handed over once the file is scanned, check by check in
+   * the order the checks were supplied, and for each check in the order they were raised.
+   * @param context the analysis context
+   * @param consumer receives each check with each of its issues
+   */
+  public void scanFileForIssues(OpenApiVisitorContext context, BiConsumer<OpenApiCheck, PreciseIssue> consumer) {
+    for (OpenApiVisitor visitor : allVisitors) {
+      if (visitor instanceof OpenApiCheck) {
+        ((OpenApiCheck) visitor).clearIssues();
+      }
+    }
+    scanFile(context);
+    for (OpenApiVisitor visitor : allVisitors) {
+      if (visitor instanceof OpenApiCheck) {
+        OpenApiCheck check = (OpenApiCheck) visitor;
+        check.handOverIssues(issue -> consumer.accept(check, issue));
+      }
+    }
+  }
+
+  /**
+   * Dispatches the nodes of the tree, walked with an explicit stack. The state of each node is the top of the stack of
+   * visited flags before it was entered.
+   */
+  private final class DispatchingWalker extends TreeWalker {
+    @Override
+    int enter(JsonNode node) {
+      context.enterNode(node);
+      int nodeDepth = depth++;
+      OpenApiVisitor[] subscribed = subscribersOf(node.getType());
+      int base = visitedTop;
+      if (subscribed.length > 0) {
+        pushVisited(subscribed.length);
+        for (int i = 0; i < subscribed.length; ++i) {
+          OpenApiVisitor visitor = subscribed[i];
+          if (!isSkipping(visitor) && !visitor.isSkipped(node)) {
+            visitedStack[base + i] = true;
+            if (visitNode(visitor, node)) {
+              skipping.put(visitor, nodeDepth);
+            }
+          }
+        }
+      }
+      return canSkipChildren(node) ? (base | SKIP_CHILDREN) : base;
+    }
+
+    @Override
+    void visitLeaf(JsonNode node, int base) {
+      visitTokens(node);
+    }
+
+    @Override
+    void leave(JsonNode node, int base) {
+      int nodeDepth = --depth;
+      if (!skipping.isEmpty()) {
+        skipping.values().removeIf(skippedDepth -> skippedDepth == nodeDepth);
+      }
+      OpenApiVisitor[] subscribed = subscribersOf(node.getType());
+      if (subscribed.length > 0) {
+        for (int i = 0; i < subscribed.length; ++i) {
+          if (visitedStack[base + i]) {
+            leaveNode(subscribed[i], node);
+          }
+        }
+        visitedTop = base;
+      }
+      context.leaveNode(node);
+    }
+  }
+
+  private boolean isSkipping(OpenApiVisitor visitor) {
+    return !skipping.isEmpty() && skipping.containsKey(visitor);
+  }
+
+  private boolean canSkipChildren(JsonNode node) {
+    if (!skipping.isEmpty() && skipping.size() == sharedVisitors.size()) {
+      return true;
+    }
+    if (!rulesOnly) {
+      return false;
+    }
+    SubtreeIndex subtrees = context.subtrees();
+    if (subtrees.isPlain(node)) {
+      return true;
+    }
+    AstNodeType type = node.getType();
+    if (!SubtreeIndex.isRule(type)) {
+      return false;
+    }
+    Boolean interesting = interestingRules.get(type);
+    if (interesting == null) {
+      interesting = subtrees.rulesBelow(type).stream().anyMatch(rule -> subscribersOf(rule).length > 0);
+      interestingRules.put(type, interesting);
+    }
+    return !interesting;
+  }
+
+  private void pushVisited(int count) {
+    if (visitedTop + count > visitedStack.length) {
+      visitedStack = Arrays.copyOf(visitedStack, Math.max(2 * visitedStack.length, visitedTop + count));
+    }
+    Arrays.fill(visitedStack, visitedTop, visitedTop + count, false);
+    visitedTop += count;
+  }
+
+  private void visitTokens(JsonNode node) {
+    for (OpenApiVisitor visitor : tokenVisitors) {
+      if (!isSkipping(visitor) && !visitor.isSkipped(node)) {
+        if (profile != null) {
+          profile.start();
+        }
+        for (Token token : node.getTokens()) {
+          visitor.visitToken(token);
+        }
+        if (profile != null) {
+          profile.stop(visitor);
+        }
+      }
+    }
+  }
+
+  private void visitFile(OpenApiVisitor visitor, JsonNode root) {
+    if (profile == null) {
+      visitor.visitFile(root);
+    } else {
+      profile.start();
+      visitor.visitFile(root);
+      profile.stop(visitor);
+    }
+  }
+
+  private void leaveFile(OpenApiVisitor visitor, JsonNode root) {
+    if (profile == null) {
+      visitor.leaveFile(root);
+    } else {
+      profile.start();
+      visitor.leaveFile(root);
+      profile.stop(visitor);
+    }
+  }
+
+  /**
+   * @return {@code true} if the visitor asked to skip the children of the node
+   */
+  private boolean visitNode(OpenApiVisitor visitor, JsonNode node) {
+    visitor.childrenSkipped = false;
+    if (profile == null) {
+      visitor.visitNode(node);
+    } else {
+      profile.start();
+      visitor.visitNode(node);
+      profile.stop(visitor);
+    }
+    return visitor.childrenSkipped;
+  }
+
+  private void leaveNode(OpenApiVisitor visitor, JsonNode node) {
+    if (profile == null) {
+      visitor.leaveNode(node);
+    } else {
+      profile.start();
+      visitor.leaveNode(node);
+      profile.stop(visitor);
+    }
+  }
+
+  private OpenApiVisitor[] subscribersOf(AstNodeType type) {
+    OpenApiVisitor[][] table;
+    int index;
+    if (type instanceof OpenApi2Grammar) {
+      table = v2Subscriptions;
+      index = ((OpenApi2Grammar) type).ordinal();
+    } else if (type instanceof OpenApi3Grammar) {
+      table = v3Subscriptions;
+      index = ((OpenApi3Grammar) type).ordinal();
+    } else {
+      OpenApiVisitor[] subscribed = otherSubscriptions.get(type);
+      if (subscribed == null) {
+        subscribed = computeSubscribers(type);
+        otherSubscriptions.put(type, subscribed);
+      }
+      return subscribed;
+    }
+    OpenApiVisitor[] subscribed = table[index];
+    if (subscribed == null) {
+      subscribed = computeSubscribers(type);
+      table[index] = subscribed;
+    }
+    return subscribed;
+  }
+
+  private OpenApiVisitor[] computeSubscribers(AstNodeType type) {
+    List<OpenApiVisitor> list = new ArrayList<>();
+    for (OpenApiVisitor visitor : sharedVisitors) {
+      if (visitor.isSubscribed(type)) {
+        list.add(visitor);
+      }
+    }
+    return list.isEmpty() ? NO_VISITORS : list.toArray(NO_VISITORS);
+  }
+
+  private static boolean overrides(OpenApiVisitor visitor, String methodName, Class<?>... parameterTypes) {
+    for (Class<?> type = visitor.getClass(); type != OpenApiVisitor.class; type = type.getSuperclass()) {
+      try {
+        type.getDeclaredMethod(methodName, parameterTypes);
+        return true;
+      } catch (NoSuchMethodException e) {
+        // not redefined at this level, look in the parent class
+      }
+    }
+    return false;
+  }
+}
@@ -29,6 +29,8 @@ public class PreciseIssue {
   private final IssueLocation primaryLocation;
   private final List<IssueLocation> secondaryLocations;
   private Integer cost;
+  // where the secondary locations must be, if they come from nodes
+  private OpenApiVisitorContext context;
 
   public PreciseIssue(IssueLocation primaryLocation) {
     this.primaryLocation = primaryLocation;
@@ -49,13 +51,35 @@ public class PreciseIssue {
     return primaryLocation;
   }
 
+  /**
+   * Adds a secondary location on a node. If the issue was raised in a file, a node of another file is replaced by the
+   * reference of the file leading to it, or ignored if there is none.
+   * @see OpenApiVisitorContext#anchor(JsonNode)
+   */
   public PreciseIssue secondary(JsonNode node, @Nullable String message) {
-    secondaryLocations.add(IssueLocation.preciseLocation(message, node));
+    JsonNode anchor = context == null ? node : context.anchor(node);
+    if (anchor != null) {
+      secondaryLocations.add(IssueLocation.preciseLocation(message, anchor));
+    }
     return this;
   }
 
+  /**
+   * Adds a secondary location. A location computed on a node is subject to the same rules as
+   * {@link #secondary(JsonNode, String)}.
+   */
   public PreciseIssue secondary(IssueLocation issueLocation) {
-    secondaryLocations.add(issueLocation);
+    JsonNode node = issueLocation.node();
+    if (context == null || node == null) {
+      secondaryLocations.add(issueLocation);
+      return this;
+    }
+    JsonNode anchor = context.anchor(node);
+    if (anchor == node) {
+      secondaryLocations.add(issueLocation);
+    } else if (anchor != null) {
+      secondaryLocations.add(IssueLocation.preciseLocation(issueLocation.message(), anchor));
+    }
     return this;
   }
 
@@ -63,6 +87,23 @@ public class PreciseIssue {
     return secondaryLocations;
   }
 
+  PreciseIssue anchoredIn(@Nullable OpenApiVisitorContext context) {
+    this.context = context;
+    return this;
+  }
+
+  /**
+   * Releases the tree the locations of this issue were computed on.
+   * @see IssueLocation#detach(boolean)
+   */
+  public void detach(boolean keepPointers) {
+    context = null;
+    primaryLocation.detach(keepPointers);
+    for (IssueLocation location : secondaryLocations) {
+      location.detach(keepPointers);
+    }
+  }
+
   @Override
   public boolean equals(Object o){
     if (o instanceof PreciseIssue){
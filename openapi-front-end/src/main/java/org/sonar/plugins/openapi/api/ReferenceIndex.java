@@ -0,0 +1,160 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.Utils;
+
+/**
+ * Index of the local references of a file, built in a single traversal. For each referenced pointer (e.g.
+ * {@code /components/schemas/Pet}), it keeps the nodes that refer to it: the objects holding a {@code $ref}, and the
+ * discriminators whose mapping (OpenAPI v3) or enumeration of values (OpenAPI v2) designate it.
+ * <p>
+ * Only references within the file, i.e. starting with {@code #}, are indexed.
+ */
+public final class ReferenceIndex {
+  private static final ReferenceIndex EMPTY = new ReferenceIndex(Collections.emptyMap());
+
+  private final Map<String, List<JsonNode>> referrers;
+
+  private ReferenceIndex(Map<String, List<JsonNode>> referrers) {
+    this.referrers = referrers;
+  }
+
+  /**
+   * @param root the root of a file, or {@code null} if it could not be parsed
+   * @return the index of the references of the file
+   */
+  public static ReferenceIndex of(@Nullable JsonNode root) {
+    if (root == null) {
+      return EMPTY;
+    }
+    Builder builder = new Builder(root.getType() == OpenApi2Grammar.ROOT);
+    builder.visit(root);
+    return new ReferenceIndex(builder.referrers);
+  }
+
+  /**
+   * @param pointer a JSON pointer within the file, e.g. {@code /definitions/Pet}
+   * @return {@code true} if at least one node refers to this pointer
+   */
+  public boolean isReferenced(String pointer) {
+    return referrers.containsKey(pointer);
+  }
+
+  /**
+   * @param pointer a JSON pointer within the file, e.g. {@code /definitions/Pet}
+   * @return the nodes referring to this pointer, in document order
+   */
+  public List<JsonNode> referrersOf(String pointer) {
+    List<JsonNode> nodes = referrers.get(pointer);
+    return nodes == null ? Collections.emptyList() : Collections.unmodifiableList(nodes);
+  }
+
+  /**
+   * @return all the pointers referred to in the file
+   */
+  public Set<String> referencedPointers() {
+    return Collections.unmodifiableSet(referrers.keySet());
+  }
+
+  private static class Builder {
+    private final boolean isV2;
+    private final Map<String, List<JsonNode>> referrers = new HashMap<>();
+
+    private Builder(boolean isV2) {
+      this.isV2 = isV2;
+    }
+
+    /**
+     * Visits the tree in document order, keeping the children left to visit on a heap-allocated stack rather than
+     * recursing, so that deeply nested documents do not overflow the stack of the thread.
+     */
+    private void visit(JsonNode root) {
+      Deque<Iterator<JsonNode>> pending = new ArrayDeque<>();
+      pending.push(Collections.singleton(root).iterator());
+      while (!pending.isEmpty()) {
+        Iterator<JsonNode> siblings = pending.peek();
+        if (!siblings.hasNext()) {
+          pending.pop();
+          continue;
+        }
+        JsonNode node = siblings.next();
+        if (node.isArray()) {
+          pending.push(node.elements().iterator());
+        } else if (node.isObject()) {
+          if (node.isRef()) {
+            addLocal(node.at("/$ref").getTokenValue(), node);
+          }
+          if (isV2) {
+            addOpenApi2Discriminators(node);
+          } else {
+            addOpenApi3Discriminators(node);
+          }
+          pending.push(node.propertyMap().values().iterator());
+        }
+      }
+    }
+
+    private void addOpenApi2Discriminators(JsonNode node) {
+      JsonNode discriminator = node.at("/discriminator");
+      if (discriminator.isMissing()) {
+        return;
+      }
+      JsonNode values = node.at("/properties/" + discriminator.getTokenValue() + "/enum");
+      if (values.isArray()) {
+        for (JsonNode value : values.elements()) {
+          add("/definitions/" + Utils.escape(value.getTokenValue()), discriminator);
+        }
+      }
+    }
+
+    private void addOpenApi3Discriminators(JsonNode node) {
+      JsonNode discriminator = node.at("/discriminator");
+      if (discriminator.isMissing()) {
+        return;
+      }
+      for (JsonNode value : discriminator.at("/mapping").propertyMap().values()) {
+        addLocal(value.getTokenValue(), discriminator);
+      }
+    }
+
+    private void addLocal(String reference, JsonNode referrer) {
+      if (reference.startsWith("#")) {
+        add(reference.substring(1), referrer);
+      }
+    }
+
+    private void add(String pointer, JsonNode referrer) {
+      referrers.computeIfAbsent(pointer, k -> new ArrayList<>(1)).add(referrer);
+    }
+  }
+}
@@ -0,0 +1,188 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.sonar.sslr.api.AstNode;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+/**
+ * Memoizes the resolution of the {@code $ref} of a file. Each reference node is resolved once, and all the references
+ * to the same target share a single resolution. Chains of local references that loop are detected beforehand and left
+ * unresolved.
+ * <p>
+ * References to other files, such as {@code ../common/errors.yaml#/Error}, are resolved relative to the file against
+ * the documents provided by {@link ExternalDocuments}, when available. A reference to a file that cannot be read is
+ * left unresolved. The first reference of the file leading to each target in another file is remembered, so that the
+ * nodes of other files can be {@linkplain #anchor(JsonNode) anchored} to the file.
+ */
+final class ReferenceResolver {
+  private final JsonNode root;
+  private final Path file;
+  private final ExternalDocuments documents;
+  private final Set<Path> externalDocuments = new LinkedHashSet<>();
+  private final Map<JsonNode, JsonNode> resolved = new IdentityHashMap<>();
+  private final Map<String, JsonNode> targets = new HashMap<>();
+  private final Set<String> cycles = new HashSet<>();
+  // targets in other files, and the reference of this file leading to each of them
+  private final Map<JsonNode, JsonNode> externalReferrers = new IdentityHashMap<>();
+
+  ReferenceResolver(@Nullable JsonNode root, @Nullable Path file, @Nullable ExternalDocuments documents) {
+    this.root = root;
+    this.file = file;
+    this.documents = documents;
+  }
+
+  JsonNode resolve(JsonNode node) {
+    if (!node.isRef()) {
+      return node;
+    }
+    JsonNode target = resolved.get(node);
+    if (target == null) {
+      String reference = referenceOf(node);
+      if (isLocal(reference)) {
+        target = targets.get(reference);
+        if (target == null) {
+          target = isInCycle(reference) ? node : node.resolve();
+          targets.put(reference, target);
+        }
+      } else if (documents != null && file != null) {
+        target = resolveExternal(node, reference);
+      } else {
+        target = node.resolve();
+      }
+      resolved.put(node, target);
+    }
+    return target;
+  }
+
+  boolean isCyclic(JsonNode node) {
+    if (!node.isRef()) {
+      return false;
+    }
+    resolve(node);
+    return cycles.contains(referenceOf(node));
+  }
+
+  Set<Path> externalDocuments() {
+    return Collections.unmodifiableSet(externalDocuments);
+  }
+
+  /**
+   * @param node a node of the file, or of another file reached through its references
+   * @return the node itself if it belongs to the file, the reference of the file leading to it if it belongs to another
+   * file, or {@code null} if it was not reached from the file
+   */
+  @CheckForNull
+  JsonNode anchor(JsonNode node) {
+    if (externalReferrers.isEmpty()) {
+      // no other file was reached: the node can only belong to this one
+      return node;
+    }
+    for (AstNode ancestor = node; ancestor != null; ancestor = ancestor.getParent()) {
+      if (ancestor == root) {
+        return node;
+      }
+      JsonNode referrer = externalReferrers.get(ancestor);
+      if (referrer != null) {
+        return referrer;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the target of a reference to another file, or the reference itself if the file cannot be found
+   */
+  private JsonNode resolveExternal(JsonNode node, String reference) {
+    int hash = reference.indexOf('#');
+    String location = hash < 0 ? reference : reference.substring(0, hash);
+    String pointer = hash < 0 ? "" : reference.substring(hash + 1);
+    if (location.isEmpty() || location.contains("://")) {
+      return node;
+    }
+    Path path;
+    try {
+      Path directory = file.toAbsolutePath().getParent();
+      path = (directory == null ? Paths.get(location) : directory.resolve(location)).normalize();
+    } catch (InvalidPathException e) {
+      return node;
+    }
+    String key = path + "#" + pointer;
+    JsonNode target = targets.get(key);
+    if (target == null) {
+      externalDocuments.add(path);
+      JsonNode document = documents.get(path);
+      if (document == null) {
+        return node;
+      }
+      target = pointer.isEmpty() ? document : document.at(pointer).value();
+      targets.put(key, target);
+      // the reference can itself belong to another file, when resolved from a target
+      JsonNode referrer = anchor(node);
+      if (referrer != null) {
+        externalReferrers.putIfAbsent(target, referrer);
+      }
+    }
+    return target;
+  }
+
+  /**
+   * Follows the chain of local references starting at {@code reference}, and records all of its links when it loops.
+   */
+  private boolean isInCycle(String reference) {
+    if (root == null) {
+      return false;
+    }
+    Set<String> chain = new HashSet<>();
+    String current = reference;
+    while (chain.add(current)) {
+      JsonNode target = root.at(current.substring(1)).value();
+      if (!target.isRef()) {
+        return false;
+      }
+      current = referenceOf(target);
+      if (!isLocal(current)) {
+        return false;
+      }
+    }
+    cycles.addAll(chain);
+    return true;
+  }
+
+  private static String referenceOf(JsonNode node) {
+    return node.at("/$ref").getTokenValue();
+  }
+
+  private static boolean isLocal(String reference) {
+    return reference.startsWith("#");
+  }
+}
@@ -19,7 +19,7 @@
  */
 package org.sonar.plugins.openapi.api;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableSet;
 import com.sonar.sslr.api.AstNodeType;
 import java.util.Collections;
 import java.util.HashSet;
@@ -41,7 +41,7 @@ public abstract class ResourceCheck extends OpenApiCheck {
 
   @Override
   public final Set<AstNodeType> subscribedKinds() {
-    return Sets.newHashSet(OpenApi2Grammar.PATH,OpenApi3Grammar.PATH);
+    return ImmutableSet.of(OpenApi2Grammar.PATH, OpenApi3Grammar.PATH);
   }
 
   @Override
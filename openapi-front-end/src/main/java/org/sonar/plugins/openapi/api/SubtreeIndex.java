@@ -0,0 +1,156 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.sonar.sslr.api.AstNodeType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
+import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+/**
+ * Tells which OpenAPI grammar rules can be found beneath the nodes of a document, so that the subtrees that cannot
+ * interest a visitor are not walked.
+ * <p>
+ * The index is filled while a walk of the whole document enters and leaves each node. It records:
+ * <ul>
+ *   <li>for each grammar rule, the rules found beneath the nodes of this rule in the document;</li>
+ *   <li>the largest subtrees without any node of a grammar rule beneath their root, such as the examples or the
+ *   {@code x-} extensions, which only hold plain YAML.</li>
+ * </ul>
+ * The types are gathered from the document rather than from the grammar, as the objects declared inline in a rule
+ * keep the generic YAML types: the answer only holds for the document that was walked.
+ */
+final class SubtreeIndex {
+  /**
+   * The minimal number of nodes of a subtree without rules for it to be recorded. Smaller subtrees, like most
+   * properties with a scalar value, are cheaper to walk than to look up.
+   */
+  static final int MIN_SUBTREE_SIZE = 16;
+
+  private final Map<AstNodeType, Set<AstNodeType>> childRules = new IdentityHashMap<>();
+  private final Map<AstNodeType, Set<AstNodeType>> rulesBelow = new IdentityHashMap<>();
+  private final Set<JsonNode> plainSubtrees = Collections.newSetFromMap(new IdentityHashMap<>());
+  // state of the walk, for each node being visited: its innermost rule (itself included), whether a rule was found
+  // beneath it, the number of nodes of its subtree and the number of pending subtrees when it was entered
+  private AstNodeType[] owners = new AstNodeType[32];
+  private boolean[] ruleBelow = new boolean[32];
+  private int[] sizes = new int[32];
+  private int[] marks = new int[32];
+  private int depth = 0;
+  private final List<JsonNode> pending = new ArrayList<>();
+
+  static boolean isRule(AstNodeType type) {
+    return type instanceof OpenApi2Grammar || type instanceof OpenApi3Grammar;
+  }
+
+  void clear() {
+    childRules.clear();
+    rulesBelow.clear();
+    plainSubtrees.clear();
+    pending.clear();
+    depth = 0;
+  }
+
+  /**
+   * Must be balanced with {@link #leave(JsonNode)}.
+   * @param node the node being entered
+   */
+  void enter(JsonNode node) {
+    if (depth == owners.length) {
+      int length = 2 * depth;
+      owners = Arrays.copyOf(owners, length);
+      ruleBelow = Arrays.copyOf(ruleBelow, length);
+      sizes = Arrays.copyOf(sizes, length);
+      marks = Arrays.copyOf(marks, length);
+    }
+    AstNodeType type = node.getType();
+    AstNodeType owner = depth == 0 ? null : owners[depth - 1];
+    if (isRule(type)) {
+      if (owner != null) {
+        childRules.computeIfAbsent(owner, k -> new HashSet<>()).add(type);
+      }
+      owner = type;
+    }
+    owners[depth] = owner;
+    ruleBelow[depth] = false;
+    sizes[depth] = 1;
+    marks[depth] = pending.size();
+    depth++;
+  }
+
+  /**
+   * @param node the node being left
+   */
+  void leave(JsonNode node) {
+    depth--;
+    owners[depth] = null;
+    boolean hasRuleBelow = ruleBelow[depth];
+    int size = sizes[depth];
+    if (!hasRuleBelow && size >= MIN_SUBTREE_SIZE) {
+      // the subtrees without rules recorded beneath this node are part of its own
+      pending.subList(marks[depth], pending.size()).clear();
+      pending.add(node);
+    }
+    if (depth > 0) {
+      ruleBelow[depth - 1] |= hasRuleBelow || isRule(node.getType());
+      sizes[depth - 1] += size;
+    } else {
+      plainSubtrees.addAll(pending);
+      pending.clear();
+    }
+  }
+
+  /**
+   * @param node a node of the document
+   * @return {@code true} if the node is the root of a large subtree that holds no node of a grammar rule beneath it
+   */
+  boolean isPlain(JsonNode node) {
+    return !plainSubtrees.isEmpty() && plainSubtrees.contains(node);
+  }
+
+  /**
+   * @param rule a grammar rule
+   * @return the grammar rules found beneath the nodes of this rule in the document
+   */
+  Set<AstNodeType> rulesBelow(AstNodeType rule) {
+    Set<AstNodeType> rules = rulesBelow.get(rule);
+    if (rules == null) {
+      rules = new HashSet<>();
+      List<AstNodeType> queue = new ArrayList<>(childRules.getOrDefault(rule, Collections.emptySet()));
+      for (int i = 0; i < queue.size(); ++i) {
+        AstNodeType child = queue.get(i);
+        if (rules.add(child)) {
+          queue.addAll(childRules.getOrDefault(child, Collections.emptySet()));
+        }
+      }
+      rules = Collections.unmodifiableSet(rules);
+      rulesBelow.put(rule, rules);
+    }
+    return rules;
+  }
+}
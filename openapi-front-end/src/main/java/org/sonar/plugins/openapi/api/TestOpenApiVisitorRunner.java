@@ -23,6 +23,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import org.sonar.openapi.OpenApiConfiguration;
 import org.sonar.openapi.parser.OpenApiParser;
 import org.sonar.sslr.yaml.grammar.JsonNode;
@@ -35,9 +37,7 @@ public class TestOpenApiVisitorRunner {
 
   public static void scanFile(File file, OpenApiVisitor... visitors) {
     OpenApiVisitorContext context = createContext(file);
-    for (OpenApiVisitor visitor : visitors) {
-      visitor.scanFile(context);
-    }
+    new OpenApiVisitorDispatcher(Arrays.asList(visitors)).scanFile(context);
   }
 
   public static void scanFileForComments(File file, boolean isV2, OpenApiVisitor... visitors) {
@@ -53,8 +53,7 @@ public class TestOpenApiVisitorRunner {
 
   public static OpenApiVisitorContext createContext(File file, boolean v2) {
     OpenApiConfiguration configuration = new OpenApiConfiguration(StandardCharsets.UTF_8, true);
-    YamlParser parser = v2 ? OpenApiParser.createV2(configuration) : OpenApiParser.createV3(configuration);
-    return createContext(file, parser);
+    return createContext(file, OpenApiParser.create(configuration, v2));
   }
 
   public static OpenApiVisitorContext createContext(File file, YamlParser parser) {
@@ -63,6 +62,15 @@ public class TestOpenApiVisitorRunner {
     return new OpenApiVisitorContext(rootTree, parser.getIssues(), openApiFile);
   }
 
+  /**
+   * Creates the context of an OpenAPI v3 file whose references to other files are resolved against {@code documents}.
+   */
+  public static OpenApiVisitorContext createContext(File file, ExternalDocuments documents) {
+    YamlParser parser = OpenApiParser.createV3(new OpenApiConfiguration(StandardCharsets.UTF_8, true));
+    JsonNode rootTree = parser.parse(file);
+    return new OpenApiVisitorContext(rootTree, parser.getIssues(), new TestOpenApiFile(file), documents);
+  }
+
   private static class TestOpenApiFile implements OpenApiFile {
 
     private final File file;
@@ -85,6 +93,11 @@ public class TestOpenApiVisitorRunner {
       return file.getName();
     }
 
+    @Override
+    public Path path() {
+      return file.toPath();
+    }
+
   }
 
 }
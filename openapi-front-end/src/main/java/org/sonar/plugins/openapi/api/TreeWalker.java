@@ -0,0 +1,124 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+/**
+ * Depth-first traversal of a tree with an explicit stack instead of recursion, so that the depth of the trees that can
+ * be walked is bounded by the heap rather than by the stack of the thread. The frames of the stack are reused from
+ * one walk to the next, and a walk can be started from the callbacks of another one.
+ */
+abstract class TreeWalker {
+  /**
+   * Flag of the state returned by {@link #enter(JsonNode)} to walk neither the children nor the tokens of the node.
+   */
+  static final int SKIP_CHILDREN = 1 << 30;
+
+  private Frame[] frames = new Frame[32];
+  private int depth = 0;
+
+  /**
+   * Walks the tree: each node is entered, then either its children are walked or, for a node without children, its
+   * tokens are visited, and it is finally left. When a callback throws an exception, the walk stops without leaving
+   * the nodes being walked.
+   * @param root the root of the tree to walk
+   */
+  final void walk(JsonNode root) {
+    int base = depth;
+    try {
+      push(root);
+      while (depth > base) {
+        Frame frame = frames[depth - 1];
+        if (frame.next < frame.children.size()) {
+          push(frame.children.get(frame.next++));
+        } else {
+          depth--;
+          JsonNode node = frame.node;
+          int state = frame.state;
+          frame.node = null;
+          frame.children = null;
+          leave(node, state);
+        }
+      }
+    } finally {
+      // the walk was aborted by an exception: release the nodes of the frames it left behind
+      while (depth > base) {
+        depth--;
+        frames[depth].node = null;
+        frames[depth].children = null;
+      }
+    }
+  }
+
+  private void push(JsonNode node) {
+    int state = enter(node);
+    List<JsonNode> children;
+    if ((state & SKIP_CHILDREN) != 0) {
+      state &= ~SKIP_CHILDREN;
+      children = Collections.emptyList();
+    } else {
+      children = node.getJsonChildren();
+      if (children.isEmpty()) {
+        visitLeaf(node, state);
+      }
+    }
+    if (depth == frames.length) {
+      frames = Arrays.copyOf(frames, 2 * depth);
+    }
+    Frame frame = frames[depth];
+    if (frame == null) {
+      frame = new Frame();
+      frames[depth] = frame;
+    }
+    frame.node = node;
+    frame.children = children;
+    frame.next = 0;
+    frame.state = state;
+    depth++;
+  }
+
+  /**
+   * Called before walking the children of a node.
+   * @return a state, handed back to {@link #visitLeaf(JsonNode, int)} and {@link #leave(JsonNode, int)} for this node,
+   * possibly combined with {@link #SKIP_CHILDREN} which is then removed from the state handed back
+   */
+  abstract int enter(JsonNode node);
+
+  /**
+   * Called on the nodes without children, after {@link #enter(JsonNode)}.
+   */
+  abstract void visitLeaf(JsonNode node, int state);
+
+  /**
+   * Called once all the children of the node have been walked.
+   */
+  abstract void leave(JsonNode node, int state);
+
+  private static final class Frame {
+    private JsonNode node;
+    private List<JsonNode> children;
+    private int next;
+    private int state;
+  }
+}
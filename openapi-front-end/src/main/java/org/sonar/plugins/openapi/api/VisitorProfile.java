@@ -0,0 +1,98 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Wall time and memory spent in each visitor run by an {@link OpenApiVisitorDispatcher}, accumulated over all the files
+ * it scans until {@link #reset()} is called.
+ * <p>
+ * Measuring each visitor call has a cost, so a dispatcher only profiles its visitors once given a profile with
+ * {@link OpenApiVisitorDispatcher#setProfile(VisitorProfile)}. A profile must only be used by one dispatcher.
+ */
+public final class VisitorProfile {
+  private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+
+  private final Map<OpenApiVisitor, long[]> totals = new IdentityHashMap<>();
+  private long startNanos;
+  private long startBytes;
+
+  /**
+   * @return the time spent in the visitor, in nanoseconds
+   */
+  public long elapsedNanos(OpenApiVisitor visitor) {
+    long[] total = totals.get(visitor);
+    return total == null ? 0 : total[0];
+  }
+
+  /**
+   * @return the number of bytes allocated by the visitor, or 0 if the JVM cannot measure allocations
+   */
+  public long allocatedBytes(OpenApiVisitor visitor) {
+    long[] total = totals.get(visitor);
+    return total == null ? 0 : total[1];
+  }
+
+  public void reset() {
+    totals.clear();
+  }
+
+  /**
+   * @return the number of bytes allocated so far by the current thread, or 0 if the JVM cannot measure allocations
+   */
+  public static long currentThreadAllocatedBytes() {
+    if (ALLOCATIONS == null) {
+      return 0;
+    }
+    return ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  void start() {
+    startBytes = currentThreadAllocatedBytes();
+    startNanos = System.nanoTime();
+  }
+
+  void stop(OpenApiVisitor visitor) {
+    long nanos = System.nanoTime() - startNanos;
+    long bytes = currentThreadAllocatedBytes() - startBytes;
+    long[] total = totals.get(visitor);
+    if (total == null) {
+      total = new long[2];
+      totals.put(visitor, total);
+    }
+    total[0] += nanos;
+    total[1] += bytes;
+  }
+
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+      if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationBean;
+      }
+    }
+    return null;
+  }
+}
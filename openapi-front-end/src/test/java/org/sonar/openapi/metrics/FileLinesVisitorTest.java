@@ -20,6 +20,7 @@
 package org.sonar.openapi.metrics;
 
 import java.io.File;
+import java.util.TreeSet;
 import org.junit.Test;
 import org.sonar.plugins.openapi.api.TestOpenApiVisitorRunner;
 
@@ -66,4 +67,23 @@ public class FileLinesVisitorTest {
     assertThat(visitor.getLinesOfCode()).hasSize(18);
     assertThat(visitor.getLinesOfCode()).containsOnly(1, 2, 3, 4, 5, 6, 7, 9, 10, 11, 12, 13, 14, 15, 16, 19, 20, 21);
   }
+
+  @Test
+  public void exposes_lines_as_bitsets() {
+    FileLinesVisitor visitor = new FileLinesVisitor();
+
+    TestOpenApiVisitorRunner.scanFile(new File(BASE_DIR, "file-lines.yaml"), visitor);
+
+    assertThat(visitor.getLinesOfCodeBits().cardinality()).isEqualTo(16);
+    assertThat(visitor.getLinesOfCodeBits().stream().boxed()).containsExactlyElementsOf(new TreeSet<>(visitor.getLinesOfCode()));
+    assertThat(visitor.getLinesOfCommentsBits().stream().boxed()).containsExactly(8, 15, 16);
+  }
+
+  @Test
+  public void counts_lines_of_trimmed_values() {
+    assertThat(FileLinesVisitor.countLines("")).isEqualTo(1);
+    assertThat(FileLinesVisitor.countLines("value")).isEqualTo(1);
+    assertThat(FileLinesVisitor.countLines("\n  value\n\n")).isEqualTo(1);
+    assertThat(FileLinesVisitor.countLines("first\nsecond\n\nfourth\n")).isEqualTo(4);
+  }
 }
\ No newline at end of file
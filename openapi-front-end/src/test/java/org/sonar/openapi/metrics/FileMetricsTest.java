@@ -47,6 +47,13 @@ public class FileMetricsTest {
     assertThat(metrics("complexity.yaml").complexity()).isEqualTo(7);
   }
 
+  @Test
+  public void lines() {
+    FileMetrics metrics = metrics("file-lines.yaml");
+    assertThat(metrics.fileLinesVisitor().getLinesOfCode()).hasSize(16);
+    assertThat(metrics.fileLinesVisitor().getLinesOfComments()).containsOnly(8, 15, 16);
+  }
+
   private FileMetrics metrics(String fileName) {
     File baseDir = new File("src/test/resources/metrics/");
     File file = new File(baseDir, fileName);
@@ -0,0 +1,88 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.parser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Test;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentCacheTest {
+  private static final OpenApiConfiguration CONFIGURATION = new OpenApiConfiguration(StandardCharsets.UTF_8, true);
+  private static final Path RESPONSES = Paths.get("src/test/resources/external/common/responses.yaml").toAbsolutePath();
+  private static final Path OTHER = Paths.get("src/test/resources/external/common/other.yaml").toAbsolutePath();
+
+  @Test
+  public void parses_each_document_once() {
+    DocumentCache cache = new DocumentCache(CONFIGURATION, DocumentCache.DEFAULT_MAX_SIZE);
+
+    JsonNode root = cache.get(RESPONSES);
+
+    assertThat(root).isNotNull();
+    assertThat(root.at("/Error/description").value().getTokenValue()).isEqualTo("an error");
+    assertThat(cache.get(RESPONSES)).isSameAs(root);
+    assertThat(cache.parsedDocuments()).isEqualTo(1);
+  }
+
+  @Test
+  public void evicts_least_recently_used_documents() throws IOException {
+    DocumentCache cache = new DocumentCache(CONFIGURATION, Files.size(RESPONSES) + Files.size(OTHER) - 1);
+
+    cache.get(RESPONSES);
+    JsonNode other = cache.get(OTHER);
+
+    assertThat(cache.evictions()).isEqualTo(1);
+    assertThat(cache.get(OTHER)).isSameAs(other);
+    assertThat(cache.parsedDocuments()).isEqualTo(2);
+
+    cache.get(RESPONSES);
+    assertThat(cache.parsedDocuments()).isEqualTo(3);
+    assertThat(cache.evictions()).isEqualTo(2);
+  }
+
+  @Test
+  public void gives_each_thread_its_own_documents() {
+    DocumentCache cache = new DocumentCache(CONFIGURATION, DocumentCache.DEFAULT_MAX_SIZE);
+    DocumentCache otherThread = cache.forAnotherThread();
+
+    JsonNode root = cache.get(RESPONSES);
+
+    assertThat(otherThread.get(RESPONSES)).isNotNull().isNotSameAs(root);
+    assertThat(otherThread.get(RESPONSES)).isSameAs(otherThread.get(RESPONSES));
+    assertThat(cache.parsedDocuments()).isEqualTo(2);
+    assertThat(otherThread.parsedDocuments()).isEqualTo(2);
+  }
+
+  @Test
+  public void remembers_unreadable_documents() {
+    DocumentCache cache = new DocumentCache(CONFIGURATION, DocumentCache.DEFAULT_MAX_SIZE);
+    Path missing = RESPONSES.resolveSibling("missing.yaml");
+
+    assertThat(cache.get(missing)).isNull();
+    assertThat(cache.get(missing)).isNull();
+    assertThat(cache.parsedDocuments()).isZero();
+  }
+}
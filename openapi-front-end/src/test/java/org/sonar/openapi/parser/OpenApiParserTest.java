@@ -0,0 +1,64 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.parser;
+
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenApiParserTest {
+  private static final OpenApiConfiguration CONFIGURATION = new OpenApiConfiguration(StandardCharsets.UTF_8, true);
+
+  @Test
+  public void creates_independent_parsers() {
+    YamlParser first = OpenApiParser.createV2(CONFIGURATION);
+    YamlParser second = OpenApiParser.createV2(CONFIGURATION);
+
+    assertThat(first).isNotSameAs(second);
+    JsonNode root = first.parse("swagger: \"2.0\"\n" +
+      "info:\n" +
+      "  version: 1.0.0\n" +
+      "  title: Swagger Petstore\n" +
+      "paths: {}");
+    assertThat(root.at("/info/title").value().getTokenValue()).isEqualTo("Swagger Petstore");
+  }
+
+  @Test
+  public void creates_parser_of_each_version() {
+    YamlParser v2 = OpenApiParser.create(CONFIGURATION, true);
+    YamlParser v3 = OpenApiParser.create(CONFIGURATION, false);
+
+    assertThat(v3).isNotSameAs(v2);
+    assertThat(v2.parse("swagger: \"2.0\"\n" +
+      "info:\n" +
+      "  version: 1.0.0\n" +
+      "  title: Swagger Petstore\n" +
+      "paths: {}").at("/swagger").isMissing()).isFalse();
+    assertThat(v3.parse("openapi: \"3.0.1\"\n" +
+      "info:\n" +
+      "  version: 1.0.0\n" +
+      "  title: Swagger Petstore\n" +
+      "paths: {}").at("/openapi").isMissing()).isFalse();
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi.parser;
+
+import java.io.IOException;
+import java.io.StringReader;
+import org.junit.Test;
+import org.sonar.openapi.parser.VersionDetector.Version;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VersionDetectorTest {
+
+  @Test
+  public void detects_yaml_documents() throws IOException {
+    assertThat(detect("openapi: 3.0.1\ninfo:\n  title: x")).isEqualTo(Version.V3);
+    assertThat(detect("# comment\n---\nswagger: '2.0'")).isEqualTo(Version.V2);
+    assertThat(detect("\uFEFF\"openapi\" : 3.0.0")).isEqualTo(Version.V3);
+    assertThat(detect("info:\n  title: x\nswagger: '2.0'")).isEqualTo(Version.V2);
+  }
+
+  @Test
+  public void detects_json_documents() throws IOException {
+    assertThat(detect("{\"swagger\":\"2.0\"}")).isEqualTo(Version.V2);
+    assertThat(detect("{\n  \"info\": {\"swagger\": \"x\"},\n  \"description\": \"openapi\",\n  \"openapi\": \"3.0.0\"\n}"))
+      .isEqualTo(Version.V3);
+    assertThat(detect("{\"title\": \"a \\\"quote\\\"\", \"swagger\" : \"2.0\"}")).isEqualTo(Version.V2);
+  }
+
+  @Test
+  public void ignores_other_documents() throws IOException {
+    assertThat(detect("")).isNull();
+    assertThat(detect("info:\n  openapi: 3.0.0")).isNull();
+    assertThat(detect("openapis: 3.0.0\nswagger_version: 2")).isNull();
+    assertThat(detect("{\"info\": {\"openapi\": \"3.0.0\"}}")).isNull();
+  }
+
+  @Test
+  public void only_reads_the_start_of_documents() throws IOException {
+    StringBuilder document = new StringBuilder();
+    while (document.length() < VersionDetector.PREFIX_LENGTH) {
+      document.append("# padding\n");
+    }
+    document.append("openapi: 3.0.0\n");
+    assertThat(detect(document.toString())).isNull();
+  }
+
+  private static Version detect(String document) throws IOException {
+    return VersionDetector.detect(new StringReader(document));
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.io.File;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AnalysisBudgetTest {
+  private static final File PETSTORE = new File(AnalysisBudgetTest.class.getResource("/petstore.yaml").getFile());
+
+  @Test
+  public void aborts_visitors_beyond_the_node_budget() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    context.setBudget(new AnalysisBudget(0, 20).start());
+    try {
+      new OpenApiVisitor().scanFile(context);
+      fail("The budget should have been exceeded");
+    } catch (BudgetExceededException e) {
+      assertThat(e.getMessage()).isEqualTo("Analysis budget exceeded: more than 20 nodes visited");
+    }
+  }
+
+  @Test
+  public void counts_nodes_walked_to_collect_suppressions() {
+    OpenApiVisitorContext parsed = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    try {
+      new OpenApiVisitorContext(parsed.rootTree(), parsed.getIssues(), parsed.openApiFile(), null, new AnalysisBudget(0, 20).start());
+      fail("The budget should have been exceeded");
+    } catch (BudgetExceededException e) {
+      assertThat(e.getMessage()).isEqualTo("Analysis budget exceeded: more than 20 nodes visited");
+    }
+  }
+
+  @Test
+  public void counts_resolved_references() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    context.setBudget(new AnalysisBudget(0, 1).start());
+    context.resolve(context.rootTree());
+    try {
+      context.resolve(context.rootTree());
+      fail("The budget should have been exceeded");
+    } catch (BudgetExceededException e) {
+      assertThat(e.getMessage()).contains("more than 1 nodes");
+    }
+  }
+
+  @Test
+  public void aborts_visitors_beyond_the_timeout() {
+    AnalysisBudget.Meter meter = new AnalysisBudget(1, 0).start();
+    long start = System.nanoTime();
+    while (System.nanoTime() - start < 5_000_000L) {
+      // wait for the deadline to pass
+    }
+    try {
+      for (int i = 0; i < AnalysisBudget.CLOCK_PERIOD; ++i) {
+        meter.spend();
+      }
+      fail("The budget should have been exceeded");
+    } catch (BudgetExceededException e) {
+      assertThat(e.getMessage()).isEqualTo("Analysis budget exceeded: more than 1 ms spent");
+    }
+  }
+
+  @Test
+  public void unlimited_budget_is_never_exceeded() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    context.setBudget(AnalysisBudget.UNLIMITED.start());
+    new OpenApiVisitor().scanFile(context);
+
+    assertThat(AnalysisBudget.UNLIMITED.isUnlimited()).isTrue();
+    assertThat(new AnalysisBudget(0, 1).isUnlimited()).isFalse();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejects_negative_limits() {
+    new AnalysisBudget(-1, 0);
+  }
+}
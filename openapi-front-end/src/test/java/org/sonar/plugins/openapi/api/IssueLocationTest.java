@@ -19,6 +19,10 @@
  */
 package org.sonar.plugins.openapi.api;
 
+import com.sonar.sslr.api.GenericTokenType;
+import com.sonar.sslr.api.Token;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 import org.sonar.openapi.OpenApiConfiguration;
@@ -56,6 +60,28 @@ public class IssueLocationTest {
     assertThat(issueLocation.endLineOffset()).isEqualTo(IssueLocation.UNDEFINED_OFFSET);
   }
 
+  @Test
+  public void can_create_range_issue() {
+    IssueLocation issueLocation = IssueLocation.atRange(MESSAGE, 3, 2, 6, 11, "/paths/pets");
+    assertThat(issueLocation.message()).isEqualTo(MESSAGE);
+    assertThat(issueLocation.startLine()).isEqualTo(3);
+    assertThat(issueLocation.endLine()).isEqualTo(6);
+    assertThat(issueLocation.startLineOffset()).isEqualTo(2);
+    assertThat(issueLocation.endLineOffset()).isEqualTo(11);
+    assertThat(issueLocation.pointer()).isEqualTo("/paths/pets");
+    assertThat(issueLocation).isEqualTo(IssueLocation.atRange(MESSAGE, 3, 2, 6, 11, "/paths/pets"));
+  }
+
+  @Test
+  public void computes_end_of_tokens() throws URISyntaxException {
+    assertLocation(token("description", 3, 4), 3, 4, 3, 15);
+    assertLocation(token("", 3, 4), 3, 4, 3, 4);
+    assertLocation(token("first\nsecond", 3, 4), 3, 4, 4, 6);
+    assertLocation(token("first\r\nsecond\rthird", 3, 4), 3, 4, 5, 5);
+    assertLocation(token("first\n\r\n", 3, 4), 3, 4, 5, 0);
+    assertLocation(token("first\r\rsecond", 3, 4), 3, 4, 5, 6);
+  }
+
   @Test
   public void can_create_single_node_issue() {
     JsonNode root = parser.parse("swagger: \"2.0\"\n" +
@@ -72,6 +98,42 @@ public class IssueLocationTest {
     assertThat(issueLocation.startLineOffset()).isEqualTo(9);
     assertThat(issueLocation.endLineOffset()).isEqualTo(11);
     assertThat(issueLocation.pointer()).isEqualTo("/paths/pets");
+    assertThat(issueLocation.pointer()).isSameAs(issueLocation.pointer());
+  }
+
+  @Test
+  public void keeps_pointer_of_detached_location() {
+    IssueLocation issueLocation = IssueLocation.preciseLocation(MESSAGE, petsNode());
+    issueLocation.detach(true);
+    assertThat(issueLocation.pointer()).isEqualTo("/paths/pets");
+    assertThat(issueLocation.endLineOffset()).isEqualTo(11);
+  }
+
+  @Test
+  public void drops_pointer_of_detached_location_if_not_kept() {
+    IssueLocation issueLocation = IssueLocation.preciseLocation(MESSAGE, petsNode());
+    issueLocation.detach(false);
+    assertThat(issueLocation.pointer()).isEqualTo(IssueLocation.EMPTY_POINTER);
+    assertThat(issueLocation.startLine()).isEqualTo(6);
+    assertThat(issueLocation.endLineOffset()).isEqualTo(11);
+  }
+
+  @Test
+  public void keeps_computed_pointer_when_detached() {
+    IssueLocation issueLocation = IssueLocation.preciseLocation(MESSAGE, petsNode());
+    String pointer = issueLocation.pointer();
+    issueLocation.detach(false);
+    assertThat(issueLocation.pointer()).isSameAs(pointer);
+  }
+
+  private JsonNode petsNode() {
+    JsonNode root = parser.parse("swagger: \"2.0\"\n" +
+      "info:\n" +
+      "  version: 1.0.0\n" +
+      "  title: Swagger Petstore\n" +
+      "paths:\n" +
+      "  /pets: {}");
+    return root.at("/paths/~1pets").value();
   }
 
   @Test
@@ -174,4 +236,22 @@ public class IssueLocationTest {
   }
 
 
+
+  private static Token token(String value, int line, int column) throws URISyntaxException {
+    return Token.builder()
+      .setType(GenericTokenType.LITERAL)
+      .setURI(new URI("unittest://tests"))
+      .setLine(line)
+      .setColumn(column)
+      .setValueAndOriginalValue(value)
+      .build();
+  }
+
+  private static void assertLocation(Token token, int startLine, int startLineOffset, int endLine, int endLineOffset) {
+    IssueLocation.TokenLocation location = new IssueLocation.TokenLocation(token);
+    assertThat(location.startLine()).isEqualTo(startLine);
+    assertThat(location.startLineOffset()).isEqualTo(startLineOffset);
+    assertThat(location.endLine()).isEqualTo(endLine);
+    assertThat(location.endLineOffset()).isEqualTo(endLineOffset);
+  }
 }
@@ -21,6 +21,7 @@ package org.sonar.plugins.openapi.api;
 
 import java.io.File;
 import org.junit.Test;
+import org.sonar.sslr.yaml.grammar.JsonNode;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -29,20 +30,59 @@ public class NoSonarCollectorTest {
   @Test
   public void can_disable_rules() {
     NoSonarCollector collector = new NoSonarCollector();
-
-    TestOpenApiVisitorRunner.scanFile(new File(NoSonarCollectorTest.class.getResource("/nosonar-test.yaml").getFile()), collector);
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File(NoSonarCollectorTest.class.getResource("/nosonar-test.yaml").getFile()));
+    collector.scanFile(context);
+    JsonNode root = context.rootTree();
 
     // Globally disable rules
-    assertThat(collector.isEnabled("/info/license", "RuleId1")).isFalse();
+    assertThat(collector.isEnabled(root.at("/info/license"), "RuleId1")).isFalse();
 
     // Rules enabled when not quoted
-    assertThat(collector.isEnabled("/info/license", "RuleId3")).isTrue();
+    assertThat(collector.isEnabled(root.at("/info/license"), "RuleId3")).isTrue();
+
+    // Can re-enable locally, in the whole subtree
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/summary"), "RuleId1")).isTrue();
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/parameters/0/name"), "RuleId1")).isTrue();
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/parameters/0/schema/type"), "RuleId1")).isTrue();
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/summary"), "RuleId2")).isFalse();
+
+    // Can disable locally, in the whole subtree
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/summary"), "RuleId3")).isTrue();
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/parameters/0/name"), "RuleId3")).isTrue();
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/parameters/1/name"), "RuleId3")).isFalse();
+    assertThat(collector.isEnabled(root.at("/paths/~1pets/get/parameters/1/schema/type"), "RuleId3")).isFalse();
+  }
+
+  @Test
+  public void resolves_nodes_outside_of_traversal() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File(NoSonarCollectorTest.class.getResource("/nosonar-test.yaml").getFile()));
+    JsonNode root = context.rootTree();
+
+    assertThat(context.isEnabled("RuleId1", root)).isFalse();
+    assertThat(context.isEnabled("RuleId1", root.at("/paths/~1pets/get/summary"))).isTrue();
+    assertThat(context.isEnabled("RuleId3", root.at("/paths/~1pets/get/parameters/1/in"))).isFalse();
+    assertThat(context.isEnabled("RuleId4", root.at("/paths/~1pets/get/parameters/1/in"))).isTrue();
+  }
 
-    // Can re-enable locally
-    assertThat(collector.isEnabled("/paths/~1pets/get", "RuleId1")).isTrue();
+  @Test
+  public void records_mentioned_rules() {
+    NoSonarCollector collector = new NoSonarCollector();
+
+    TestOpenApiVisitorRunner.scanFile(new File(NoSonarCollectorTest.class.getResource("/nosonar-test.yaml").getFile()), collector);
+
+    assertThat(collector.hasSuppressions()).isTrue();
+    assertThat(collector.mentions("RuleId1")).isTrue();
+    assertThat(collector.mentions("RuleId3")).isTrue();
+    assertThat(collector.mentions("RuleId4")).isFalse();
+  }
+
+  @Test
+  public void has_no_suppressions_without_markers() {
+    NoSonarCollector collector = new NoSonarCollector();
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File(NoSonarCollectorTest.class.getResource("/petstore.yaml").getFile()));
+    collector.scanFile(context);
 
-    // Can disable locally
-    assertThat(collector.isEnabled("/paths/~1pets/get", "RuleId3")).isTrue();
-    assertThat(collector.isEnabled("/paths/~1pets/get/parameters/1", "RuleId3")).isFalse();
+    assertThat(collector.hasSuppressions()).isFalse();
+    assertThat(collector.isEnabled(context.rootTree().at("/info/license"), "RuleId1")).isTrue();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Collections;
+import org.junit.Test;
+import org.sonar.plugins.openapi.api.v2.OpenApi2Grammar;
+import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
+import org.sonar.sslr.yaml.grammar.YamlGrammar;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NodeTypeSetTest {
+
+  @Test
+  public void contains_grammar_rules_of_both_versions() {
+    NodeTypeSet set = NodeTypeSet.copyOf(ImmutableSet.of(OpenApi2Grammar.OPERATION, OpenApi3Grammar.PATH));
+
+    assertThat(set.contains(OpenApi2Grammar.OPERATION)).isTrue();
+    assertThat(set.contains(OpenApi3Grammar.PATH)).isTrue();
+    assertThat(set.contains(OpenApi3Grammar.OPERATION)).isFalse();
+    assertThat(set.contains(OpenApi2Grammar.PATH)).isFalse();
+    assertThat(set.contains(YamlGrammar.BLOCK_MAPPING)).isFalse();
+  }
+
+  @Test
+  public void contains_other_node_types() {
+    NodeTypeSet set = NodeTypeSet.copyOf(ImmutableSet.of(YamlGrammar.BLOCK_MAPPING));
+
+    assertThat(set.contains(YamlGrammar.BLOCK_MAPPING)).isTrue();
+    assertThat(set.contains(YamlGrammar.FLOW_MAPPING)).isFalse();
+    assertThat(set.contains(OpenApi3Grammar.ROOT)).isFalse();
+  }
+
+  @Test
+  public void empty_set_contains_nothing() {
+    NodeTypeSet set = NodeTypeSet.copyOf(Collections.emptySet());
+
+    assertThat(set.contains(OpenApi2Grammar.ROOT)).isFalse();
+    assertThat(set.contains(YamlGrammar.BLOCK_MAPPING)).isFalse();
+  }
+}
@@ -23,6 +23,7 @@ import com.google.common.collect.Sets;
 import com.sonar.sslr.api.AstNodeType;
 import java.io.File;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import org.junit.Test;
 import org.sonar.check.Rule;
@@ -32,6 +33,8 @@ import org.sonar.sslr.yaml.grammar.JsonNode;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class OpenApiCheckTest {
+  private static final File PETSTORE = new File(OpenApiCheckTest.class.getResource("/petstore.yaml").getFile());
+
   private static class BaseRule extends OpenApiCheck {
     boolean visited = false;
     Set<String> visitedNodes = new HashSet<>();
@@ -59,6 +62,44 @@ public class OpenApiCheckTest {
   private static class Rule3Check extends BaseRule {
   }
 
+  @Rule(key="OperationRule")
+  private static class OperationCheck extends OpenApiCheck {
+    @Override
+    public Set<AstNodeType> subscribedKinds() {
+      return Sets.newHashSet(OpenApi3Grammar.OPERATION);
+    }
+
+    @Override
+    protected void visitNode(JsonNode node) {
+      addIssue("operation", node.key());
+      addIssue("operation", node.key()).withCost(2);
+      addIssue("other message", node.key());
+    }
+  }
+
+  @Test
+  public void drops_duplicate_issues() {
+    List<PreciseIssue> issues = new OperationCheck().scanFileForIssues(TestOpenApiVisitorRunner.createContext(PETSTORE));
+
+    assertThat(issues).extracting(issue -> issue.primaryLocation().message())
+      .containsExactly("operation", "other message", "operation", "other message", "operation", "other message");
+    assertThat(issues).extracting(PreciseIssue::cost).containsOnly((Integer) null);
+  }
+
+  @Test
+  public void limits_issues_per_file() {
+    OperationCheck check = new OperationCheck();
+    check.setMaxIssues(4);
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    List<PreciseIssue> issues = check.scanFileForIssues(context);
+
+    assertThat(issues).hasSize(5);
+    assertThat(issues.get(4).primaryLocation().startLine()).isEqualTo(IssueLocation.UNDEFINED_LINE);
+    assertThat(issues.get(4).primaryLocation().message())
+      .isEqualTo("2 more issues of this rule are not reported, only the first 4 of a file are.");
+    assertThat(check.scanFileForIssues(context)).isEqualTo(issues);
+  }
+
   @Test
   public void skips_rules_on_x_nosonar() {
     Rule1Check rule1 = new Rule1Check();
@@ -71,7 +112,7 @@ public class OpenApiCheckTest {
     assertThat(rule2.visited).isTrue();
     assertThat(rule3.visited).isTrue();
 
-    assertThat(rule1.visitedNodes).containsOnly("/paths/~1pets/get");
+    assertThat(rule1.visitedNodes).containsOnly("/paths/~1pets/get", "/paths/~1pets/get/parameters/0", "/paths/~1pets/get/parameters/1");
     assertThat(rule2.visitedNodes).isEmpty();
     assertThat(rule3.visitedNodes).containsOnly("/paths/~1pets/get", "/paths/~1pets/get/parameters/0");
   }
@@ -0,0 +1,288 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.google.common.collect.ImmutableSet;
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.check.Rule;
+import org.sonar.plugins.openapi.api.v3.OpenApi3Grammar;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OpenApiVisitorDispatcherTest {
+  private static final File PETSTORE = new File(OpenApiVisitorDispatcherTest.class.getResource("/petstore.yaml").getFile());
+  @org.junit.Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void visits_like_independent_visitors() {
+    PathVisitor dispatchedPaths = new PathVisitor();
+    TokenVisitor dispatchedTokens = new TokenVisitor();
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    new OpenApiVisitorDispatcher(Arrays.asList(dispatchedPaths, dispatchedTokens)).scanFile(context);
+
+    PathVisitor paths = new PathVisitor();
+    TokenVisitor tokens = new TokenVisitor();
+    paths.scanFile(context);
+    tokens.scanFile(context);
+
+    assertThat(dispatchedPaths.events).containsExactly("visit /pets", "leave /pets", "visit /pets/{petId}", "leave /pets/{petId}");
+    assertThat(dispatchedPaths.events).isEqualTo(paths.events);
+    assertThat(dispatchedTokens.tokens).isNotEmpty();
+    assertThat(dispatchedTokens.tokens).isEqualTo(tokens.tokens);
+  }
+
+  @Test
+  public void runs_visitors_redefining_the_traversal_on_their_own() {
+    CustomTraversalVisitor visitor = new CustomTraversalVisitor();
+    new OpenApiVisitorDispatcher(Arrays.asList(new PathVisitor(), visitor)).scanFile(TestOpenApiVisitorRunner.createContext(PETSTORE));
+
+    assertThat(visitor.scanned).isTrue();
+  }
+
+  @Test
+  public void collects_issues_by_check() {
+    OperationCheck first = new OperationCheck();
+    OperationCheck second = new OperationCheck();
+    Map<OpenApiCheck, List<PreciseIssue>> issues = new OpenApiVisitorDispatcher(Arrays.asList(first, new PathVisitor(), second))
+      .scanFileForIssues(TestOpenApiVisitorRunner.createContext(PETSTORE));
+
+    assertThat(issues.keySet()).containsExactly(first, second);
+    assertThat(issues.get(first)).hasSize(3);
+    assertThat(issues.get(second)).isEqualTo(issues.get(first));
+  }
+
+  @Test
+  public void hands_issues_over_check_by_check() {
+    OperationCheck first = new OperationCheck();
+    SchemaCheck second = new SchemaCheck();
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    List<String> handedOver = new ArrayList<>();
+    new OpenApiVisitorDispatcher(Arrays.asList(first, new PathVisitor(), second)).scanFileForIssues(context,
+      (check, issue) -> handedOver.add(check.getRuleId().get() + " " + issue.primaryLocation().message()));
+
+    List<String> expected = new ArrayList<>(Collections.nCopies(3, "OperationRule operation"));
+    expected.addAll(Collections.nCopies(new SchemaCheck().scanFileForIssues(context).size(), "SchemaRule schema"));
+    assertThat(handedOver).hasSize(expected.size()).isEqualTo(expected);
+    assertThat(first.scanFileForIssues(context)).hasSize(3);
+  }
+
+  @Test
+  public void skips_children_on_request() {
+    SkippingVisitor dispatched = new SkippingVisitor();
+    PathVisitor paths = new PathVisitor();
+    TokenVisitor tokens = new TokenVisitor();
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(PETSTORE);
+    new OpenApiVisitorDispatcher(Arrays.asList(dispatched, paths, tokens)).scanFile(context);
+
+    SkippingVisitor alone = new SkippingVisitor();
+    alone.scanFile(context);
+
+    assertThat(dispatched.events).containsExactly("visit /pets", "leave /pets", "visit /pets/{petId}", "visit showPetById",
+      "leave showPetById", "leave /pets/{petId}");
+    assertThat(alone.events).isEqualTo(dispatched.events);
+    assertThat(paths.events).hasSize(4);
+    assertThat(tokens.tokens).contains("listPets", "createPets");
+  }
+
+  @Test
+  public void skips_subtrees_without_subscribed_rules() {
+    File file = new File(OpenApiVisitorDispatcherTest.class.getResource("/subtrees.yaml").getFile());
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(file);
+    OperationCheck operations = new OperationCheck();
+    SchemaCheck schemas = new SchemaCheck();
+    Map<OpenApiCheck, List<PreciseIssue>> issues = new OpenApiVisitorDispatcher(Arrays.asList(operations, schemas))
+      .scanFileForIssues(context);
+
+    assertThat(issues.get(operations)).hasSize(1);
+    assertThat(issues.get(operations)).isEqualTo(new OperationCheck().scanFileForIssues(context));
+    assertThat(issues.get(schemas)).hasSize(2);
+    assertThat(issues.get(schemas)).isEqualTo(new SchemaCheck().scanFileForIssues(context));
+  }
+
+  @Test
+  public void profiles_visitors() {
+    PathVisitor paths = new PathVisitor();
+    CustomTraversalVisitor custom = new CustomTraversalVisitor();
+    OpenApiVisitor idle = new OpenApiVisitor();
+    VisitorProfile profile = new VisitorProfile();
+    OpenApiVisitorDispatcher dispatcher = new OpenApiVisitorDispatcher(Arrays.asList(paths, custom, idle));
+    dispatcher.setProfile(profile);
+    dispatcher.scanFile(TestOpenApiVisitorRunner.createContext(PETSTORE));
+
+    assertThat(paths.events).hasSize(4);
+    assertThat(profile.elapsedNanos(paths)).isPositive();
+    assertThat(profile.elapsedNanos(custom)).isPositive();
+    assertThat(profile.allocatedBytes(paths)).isNotNegative();
+
+    profile.reset();
+    assertThat(profile.elapsedNanos(paths)).isZero();
+  }
+
+  @Test
+  public void walks_deep_trees_on_small_stacks() throws IOException, InterruptedException {
+    StringBuilder document = new StringBuilder("openapi: \"3.0.1\"\n" +
+      "info:\n" +
+      "  version: 1.0.0\n" +
+      "  title: Deep\n" +
+      "paths: {}\n" +
+      "x-deep: ");
+    for (int i = 0; i < 1000; ++i) {
+      document.append("{a: ");
+    }
+    document.append("[leaf, {$ref: \"#/info\"}]");
+    for (int i = 0; i < 1000; ++i) {
+      document.append("}");
+    }
+    File file = temporaryFolder.newFile("deep.yaml");
+    Files.write(file.toPath(), document.toString().getBytes(StandardCharsets.UTF_8));
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(file);
+    TokenVisitor dispatched = new TokenVisitor();
+    TokenVisitor alone = new TokenVisitor();
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    AtomicReference<ReferenceIndex> references = new AtomicReference<>();
+
+    Thread thread = new Thread(null, () -> {
+      try {
+        references.set(context.references());
+        new OpenApiVisitorDispatcher(Collections.singletonList(dispatched)).scanFile(context);
+        alone.scanFile(context);
+      } catch (Throwable e) {
+        failure.set(e);
+      }
+    }, "small-stack", 256 * 1024);
+    thread.start();
+    thread.join();
+
+    assertThat(failure.get()).isNull();
+    assertThat(dispatched.tokens).contains("leaf");
+    assertThat(alone.tokens).isEqualTo(dispatched.tokens);
+    assertThat(references.get().referrersOf("/info")).hasSize(1);
+  }
+
+  private static class PathVisitor extends OpenApiVisitor {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    protected boolean isSubscribed(AstNodeType nodeType) {
+      return nodeType == OpenApi3Grammar.PATH;
+    }
+
+    @Override
+    protected void visitNode(JsonNode node) {
+      events.add("visit " + node.key().getTokenValue());
+    }
+
+    @Override
+    protected void leaveNode(JsonNode node) {
+      events.add("leave " + node.key().getTokenValue());
+    }
+  }
+
+  private static class SkippingVisitor extends OpenApiVisitor {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    protected boolean isSubscribed(AstNodeType nodeType) {
+      return nodeType == OpenApi3Grammar.PATH || nodeType == OpenApi3Grammar.OPERATION;
+    }
+
+    @Override
+    protected void visitNode(JsonNode node) {
+      if (node.getType() == OpenApi3Grammar.PATH) {
+        String path = node.key().getTokenValue();
+        events.add("visit " + path);
+        if ("/pets".equals(path)) {
+          skipChildren();
+        }
+      } else {
+        events.add("visit " + node.at("/operationId").getTokenValue());
+      }
+    }
+
+    @Override
+    protected void leaveNode(JsonNode node) {
+      if (node.getType() == OpenApi3Grammar.PATH) {
+        events.add("leave " + node.key().getTokenValue());
+      } else {
+        events.add("leave " + node.at("/operationId").getTokenValue());
+      }
+    }
+  }
+
+  private static class TokenVisitor extends OpenApiVisitor {
+    private final List<String> tokens = new ArrayList<>();
+
+    @Override
+    protected void visitToken(Token token) {
+      tokens.add(token.getValue());
+    }
+  }
+
+  private static class CustomTraversalVisitor extends OpenApiVisitor {
+    private boolean scanned = false;
+
+    @Override
+    public void scanFile(OpenApiVisitorContext context) {
+      scanned = true;
+    }
+  }
+
+  @Rule(key = "OperationRule")
+  private static class OperationCheck extends OpenApiCheck {
+    @Override
+    public Set<AstNodeType> subscribedKinds() {
+      return ImmutableSet.of(OpenApi3Grammar.OPERATION);
+    }
+
+    @Override
+    protected void visitNode(JsonNode node) {
+      addIssue("operation", node.key());
+    }
+  }
+
+  @Rule(key = "SchemaRule")
+  private static class SchemaCheck extends OpenApiCheck {
+    @Override
+    public Set<AstNodeType> subscribedKinds() {
+      return ImmutableSet.of(OpenApi3Grammar.SCHEMA);
+    }
+
+    @Override
+    protected void visitNode(JsonNode node) {
+      addIssue("schema", node);
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.io.File;
+import org.junit.Test;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReferenceIndexTest {
+
+  @Test
+  public void indexes_references_and_their_referrers() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File(ReferenceIndexTest.class.getResource("/references.yaml").getFile()));
+    ReferenceIndex index = context.references();
+
+    assertThat(index.isReferenced("/components/schemas/Pet")).isTrue();
+    assertThat(index.isReferenced("/components/schemas/Unused")).isFalse();
+    assertThat(index.referrersOf("/components/responses/Error")).hasSize(2);
+    for (JsonNode referrer : index.referrersOf("/components/responses/Error")) {
+      assertThat(referrer.isRef()).isTrue();
+    }
+    assertThat(index.referrersOf("/components/schemas/Unused")).isEmpty();
+  }
+
+  @Test
+  public void includes_discriminator_mappings() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File(ReferenceIndexTest.class.getResource("/references.yaml").getFile()));
+    ReferenceIndex index = context.references();
+
+    assertThat(index.isReferenced("/components/schemas/Dog")).isTrue();
+    // only local references are indexed
+    assertThat(index.isReferenced("/components/schemas/Cat")).isFalse();
+    assertThat(index.referencedPointers()).containsOnly("/components/schemas/Pet", "/components/schemas/Dog",
+      "/components/responses/Error");
+  }
+
+  @Test
+  public void is_built_once_per_file() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File(ReferenceIndexTest.class.getResource("/petstore.yaml").getFile()));
+
+    assertThat(context.references()).isSameAs(context.references());
+    assertThat(context.references().referrersOf("/components/schemas/Error")).hasSize(3);
+    assertThat(context.references().referrersOf("/components/schemas/Pet")).hasSize(1);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.junit.Test;
+import org.sonar.openapi.OpenApiConfiguration;
+import org.sonar.openapi.parser.DocumentCache;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReferenceResolverTest {
+
+  private static OpenApiVisitorContext context() {
+    return TestOpenApiVisitorRunner.createContext(new File(ReferenceResolverTest.class.getResource("/cyclic-references.yaml").getFile()));
+  }
+
+  @Test
+  public void shares_the_resolution_of_a_target() {
+    OpenApiVisitorContext context = context();
+    JsonNode root = context.rootTree();
+    JsonNode first = root.at("/paths/~1pets/get/responses/200").value();
+    JsonNode second = root.at("/paths/~1pets/post/responses/201").value();
+
+    JsonNode target = context.resolve(first);
+
+    assertThat(target.isRef()).isFalse();
+    assertThat(context.resolve(first)).isSameAs(target);
+    assertThat(context.resolve(second)).isSameAs(target);
+    assertThat(context.isCyclic(first)).isFalse();
+  }
+
+  @Test
+  public void does_not_resolve_other_nodes() {
+    OpenApiVisitorContext context = context();
+    JsonNode info = context.rootTree().at("/info").value();
+
+    assertThat(context.resolve(info)).isSameAs(info);
+    assertThat(context.isCyclic(info)).isFalse();
+  }
+
+  @Test
+  public void detects_cycles() {
+    OpenApiVisitorContext context = context();
+    JsonNode root = context.rootTree();
+    JsonNode loop = root.at("/paths/~1pets/get/responses/404").value();
+
+    assertThat(context.isCyclic(loop)).isTrue();
+    assertThat(context.resolve(loop)).isSameAs(loop);
+    assertThat(context.isCyclic(root.at("/components/responses/Loop2").value())).isTrue();
+  }
+
+  @Test
+  public void resolves_references_to_other_files() {
+    DocumentCache documents = new DocumentCache(new OpenApiConfiguration(StandardCharsets.UTF_8, true), DocumentCache.DEFAULT_MAX_SIZE);
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File("src/test/resources/external/v3/contract.yaml"), documents);
+    JsonNode root = context.rootTree();
+    JsonNode getError = root.at("/paths/~1pets/get/responses/default").value();
+    JsonNode postError = root.at("/paths/~1pets/post/responses/default").value();
+
+    JsonNode target = context.resolve(getError);
+
+    assertThat(target.at("/description").value().getTokenValue()).isEqualTo("an error");
+    assertThat(context.resolve(postError)).isSameAs(target);
+    assertThat(context.resolve(root.at("/paths/~1pets/get/responses/200").value()).at("/description").value().getTokenValue())
+      .isEqualTo("the pets");
+    assertThat(documents.parsedDocuments()).isEqualTo(1);
+
+    context.resolve(root.at("/paths/~1pets/post/responses/404").value());
+    Path common = Paths.get("src/test/resources/external/common").toAbsolutePath();
+    assertThat(context.externalDocuments()).containsExactly(common.resolve("responses.yaml"), common.resolve("missing.yaml"));
+
+    OpenApiVisitorContext other = TestOpenApiVisitorRunner.createContext(new File("src/test/resources/external/v3/contract.yaml"), documents);
+    other.resolve(other.rootTree().at("/paths/~1pets/get/responses/default").value());
+    assertThat(documents.parsedDocuments()).isEqualTo(1);
+  }
+
+  @Test
+  public void anchors_nodes_of_other_files_to_their_references() {
+    DocumentCache documents = new DocumentCache(new OpenApiConfiguration(StandardCharsets.UTF_8, true), DocumentCache.DEFAULT_MAX_SIZE);
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(new File("src/test/resources/external/v3/contract.yaml"), documents);
+    JsonNode root = context.rootTree();
+    JsonNode info = root.at("/info").value();
+    JsonNode getError = root.at("/paths/~1pets/get/responses/default").value();
+    JsonNode postError = root.at("/paths/~1pets/post/responses/default").value();
+    assertThat(context.anchor(info)).isSameAs(info);
+
+    JsonNode schema = context.resolve(getError).at("/content/application~1json/schema").value();
+    context.resolve(postError);
+
+    assertThat(context.anchor(schema)).isSameAs(getError);
+    assertThat(context.anchor(schema.key())).isSameAs(getError);
+    assertThat(context.anchor(info)).isSameAs(info);
+    assertThat(context.anchor(postError)).isSameAs(postError);
+    JsonNode unrelated = documents.get(Paths.get("src/test/resources/external/common/other.yaml").toAbsolutePath());
+    assertThat(context.anchor(unrelated)).isNull();
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.plugins.openapi.api;
+
+import com.sonar.sslr.api.AstNodeType;
+import com.sonar.sslr.api.Token;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Test;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.plugins.openapi.api.v3.OpenApi3Grammar.INFO;
+import static org.sonar.plugins.openapi.api.v3.OpenApi3Grammar.MEDIA_TYPE;
+import static org.sonar.plugins.openapi.api.v3.OpenApi3Grammar.OPERATION;
+import static org.sonar.plugins.openapi.api.v3.OpenApi3Grammar.PATH;
+import static org.sonar.plugins.openapi.api.v3.OpenApi3Grammar.PATHS;
+import static org.sonar.plugins.openapi.api.v3.OpenApi3Grammar.SCHEMA;
+
+public class SubtreeIndexTest {
+  private static final File SUBTREES = new File(SubtreeIndexTest.class.getResource("/subtrees.yaml").getFile());
+
+  @Test
+  public void finds_rules_below_rules() {
+    SubtreeIndex subtrees = TestOpenApiVisitorRunner.createContext(SUBTREES).subtrees();
+
+    assertThat(subtrees.rulesBelow(PATHS)).contains(PATH, OPERATION, MEDIA_TYPE, SCHEMA).doesNotContain(PATHS, INFO);
+    assertThat(subtrees.rulesBelow(OPERATION)).contains(MEDIA_TYPE, SCHEMA).doesNotContain(PATH);
+    assertThat(subtrees.rulesBelow(INFO)).isEmpty();
+  }
+
+  @Test
+  public void finds_largest_subtrees_without_rules() {
+    OpenApiVisitorContext context = TestOpenApiVisitorRunner.createContext(SUBTREES);
+    PlainSubtreeVisitor visitor = new PlainSubtreeVisitor();
+    visitor.scanFile(context);
+
+    assertThat(visitor.subtrees).hasSize(2);
+    assertThat(visitor.subtrees.get(0)).contains("Rex", "Nemo", "Nice").doesNotContain("schema", "array");
+    assertThat(visitor.subtrees.get(1)).contains("first", "sixth", "6").doesNotContain("openapi");
+  }
+
+  private static class PlainSubtreeVisitor extends OpenApiVisitor {
+    private final List<List<String>> subtrees = new ArrayList<>();
+
+    @Override
+    protected boolean isSubscribed(AstNodeType nodeType) {
+      return true;
+    }
+
+    @Override
+    protected void visitNode(JsonNode node) {
+      if (getContext().subtrees().isPlain(node)) {
+        subtrees.add(node.getTokens().stream().map(Token::getValue).collect(Collectors.toList()));
+      }
+    }
+  }
+}
@@ -0,0 +1,641 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.check.RuleProperty;
+import org.sonar.plugins.openapi.api.IssueLocation;
+import org.sonar.plugins.openapi.api.OpenApiCheck;
+import org.sonar.plugins.openapi.api.PreciseIssue;
+import org.sonar.plugins.openapi.cpd.OpenApiCpdAnalyzer.CpdToken;
+
+/**
+ * Keeps the results of the analysis of files between two runs, so that the files whose content did not change are
+ * neither parsed nor checked again.
+ * <p>
+ * Entries are grouped in a directory per configuration, named after a fingerprint of the plugin version, the file
+ * encoding and the active rules with their parameters and the code of their checks. Each entry is named after the hash
+ * of the location and the content of the analyzed file, as its references are resolved relative to its location, and
+ * records the hash of the other files that these references point to: the entry is only replayed if none of them
+ * changed. Once all files have been analyzed, {@link #prune()} removes the entries that were not used, as well as the
+ * directories of the other configurations.
+ * <p>
+ * The cache never fails the analysis: an entry that cannot be read or written is logged and ignored.
+ */
+class AnalysisCache {
+  private static final Logger LOG = Loggers.get(AnalysisCache.class);
+  private static final int FORMAT_VERSION = 4;
+  private static final String TEMPORARY_SUFFIX = ".tmp";
+  private static final int HASH_CHUNK_SIZE = 64 * 1024;
+  // the message flag, the four positions and the length of the pointer
+  private static final int LOCATION_MIN_BYTES = 1 + 5 * Integer.BYTES;
+
+  private final Path root;
+  private final Path directory;
+  private final Set<String> usedEntries = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger hits = new AtomicInteger();
+  private final Map<Path, String> documentHashes = new ConcurrentHashMap<>();
+
+  /**
+   * @param baseDirectory the directory holding the cache
+   * @param fingerprint the fingerprint of the configuration, see {@link #fingerprint(OpenApiChecks, Charset, int)}
+   * @param isv2 whether the cached files are OpenAPI v2 contracts
+   */
+  AnalysisCache(Path baseDirectory, String fingerprint, boolean isv2) {
+    this.root = baseDirectory.resolve(isv2 ? "v2" : "v3");
+    this.directory = root.resolve(fingerprint);
+  }
+
+  /**
+   * Computes the fingerprint of the configuration of an analysis. Results cached under a given fingerprint can be
+   * replayed by any analysis with the same fingerprint. The code of the checks is part of it, so that upgrading a
+   * repository of custom rules invalidates the results of its rules even if their keys and parameters are the same.
+   */
+  static String fingerprint(OpenApiChecks checks, Charset encoding, int maxIssuesPerRule) {
+    List<String> rules = new ArrayList<>();
+    // most checks come from the same few jars, each one is only hashed once
+    Map<Path, String> jarHashes = new HashMap<>();
+    for (OpenApiCheck check : checks.all()) {
+      StringBuilder rule = new StringBuilder()
+        .append(checks.ruleKeyFor(check))
+        .append(' ')
+        .append(check.getClass().getName())
+        .append(' ')
+        .append(codeHash(check.getClass(), jarHashes));
+      for (Class<?> type = check.getClass(); type != Object.class; type = type.getSuperclass()) {
+        for (Field field : type.getDeclaredFields()) {
+          if (field.isAnnotationPresent(RuleProperty.class)) {
+            rule.append(' ').append(field.getName()).append('=').append(readField(field, check));
+          }
+        }
+      }
+      rules.add(rule.toString());
+    }
+    Collections.sort(rules);
+
+    MessageDigest digest = sha256();
+    update(digest, "format " + FORMAT_VERSION);
+    update(digest, "plugin " + pluginVersion());
+    update(digest, "encoding " + encoding.name());
+    update(digest, "maxIssuesPerRule " + maxIssuesPerRule);
+    for (String rule : rules) {
+      update(digest, rule);
+    }
+    return toHex(digest.digest());
+  }
+
+  /**
+   * @return the name of the entry of the file, or {@code null} if its content cannot be read
+   */
+  @CheckForNull
+  String keyOf(InputFile inputFile) {
+    MessageDigest digest = sha256();
+    // identical contracts in different directories can refer to different files
+    update(digest, "file " + inputFile.key());
+    try {
+      return digestOf(digest, inputFile.path());
+    } catch (IOException e) {
+      LOG.debug("Unable to hash " + inputFile + ", it will not be cached", e);
+      return null;
+    }
+  }
+
+  /**
+   * @return the result previously cached under {@code key}, now bound to {@code inputFile}, or {@code null} if there is
+   * no such entry
+   */
+  @CheckForNull
+  AnalysisResult read(String key, InputFile inputFile) {
+    Path entry = directory.resolve(key);
+    if (!Files.isRegularFile(entry)) {
+      return null;
+    }
+    try (EntryInput in = new EntryInput(new BufferedInputStream(Files.newInputStream(entry)), Files.size(entry))) {
+      if (in.readInt() != FORMAT_VERSION || !areUpToDate(in)) {
+        return null;
+      }
+      AnalysisResult result = readResult(in, inputFile);
+      usedEntries.add(key);
+      hits.incrementAndGet();
+      return result;
+    } catch (IOException | RuntimeException e) {
+      // e.g. a truncated entry, or one left by a newer version of the plugin that did not bump the format
+      LOG.debug("Ignoring unreadable cache entry " + entry, e);
+      return null;
+    }
+  }
+
+  /**
+   * Stores the result under {@code key}. The entry is written to a temporary file first, so that a concurrent reader
+   * never sees a partial entry.
+   */
+  void write(String key, AnalysisResult result) {
+    Path temporary = null;
+    try {
+      Files.createDirectories(directory);
+      temporary = Files.createTempFile(directory, key, TEMPORARY_SUFFIX);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+        out.writeInt(FORMAT_VERSION);
+        writeExternalDocuments(out, result.externalDocuments());
+        writeResult(out, result);
+      }
+      Files.move(temporary, directory.resolve(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      usedEntries.add(key);
+    } catch (IOException e) {
+      LOG.warn("Unable to cache the analysis of " + result.inputFile() + ": " + e.getMessage());
+      deleteQuietly(temporary);
+    }
+  }
+
+  /**
+   * @return the number of results read from the cache so far
+   */
+  int hits() {
+    return hits.get();
+  }
+
+  /**
+   * Deletes the entries that were neither read nor written since this cache was created, and the entries of other
+   * configurations. Must only be called once all files have been analyzed.
+   */
+  void prune() {
+    if (!Files.isDirectory(root)) {
+      return;
+    }
+    try (DirectoryStream<Path> configurations = Files.newDirectoryStream(root)) {
+      for (Path configuration : configurations) {
+        if (!configuration.equals(directory)) {
+          deleteRecursively(configuration);
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to clean the analysis cache " + root + ": " + e.getMessage());
+    }
+    if (!Files.isDirectory(directory)) {
+      return;
+    }
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+      for (Path entry : entries) {
+        if (!usedEntries.contains(entry.getFileName().toString())) {
+          deleteQuietly(entry);
+        }
+      }
+    } catch (IOException e) {
+      LOG.warn("Unable to clean the analysis cache " + directory + ": " + e.getMessage());
+    }
+  }
+
+  private boolean areUpToDate(EntryInput in) throws IOException {
+    int count = in.readLength(2 * Integer.BYTES);
+    boolean upToDate = true;
+    for (int i = 0; i < count; ++i) {
+      Path path = Paths.get(readString(in));
+      String hash = readString(in);
+      upToDate &= hash.equals(hashOf(path));
+    }
+    return upToDate;
+  }
+
+  private void writeExternalDocuments(DataOutputStream out, List<Path> paths) throws IOException {
+    out.writeInt(paths.size());
+    for (Path path : paths) {
+      writeString(out, path.toString());
+      writeString(out, hashOf(path));
+    }
+  }
+
+  /**
+   * @return the hash of the content of a file referred to by analyzed files, computed once per analysis, or an empty
+   * string if the file cannot be read
+   */
+  private String hashOf(Path path) {
+    return documentHashes.computeIfAbsent(path, p -> {
+      try {
+        return digestOf(sha256(), p);
+      } catch (IOException e) {
+        return "";
+      }
+    });
+  }
+
+  private static AnalysisResult readResult(EntryInput in, InputFile inputFile) throws IOException {
+    AnalysisResult result = new AnalysisResult(inputFile);
+    if (in.readBoolean()) {
+      result.setMeasures(readMeasures(in));
+    }
+    int errorCount = in.readLength(3 * Integer.BYTES);
+    for (int i = 0; i < errorCount; ++i) {
+      int line = in.readInt();
+      int column = in.readInt();
+      result.addError(line, column, readString(in));
+    }
+    int ruleCount = in.readLength(1 + Integer.BYTES);
+    for (int i = 0; i < ruleCount; ++i) {
+      RuleKey ruleKey = in.readBoolean() ? RuleKey.parse(readString(in)) : null;
+      int issueCount = in.readLength(1 + LOCATION_MIN_BYTES + Integer.BYTES);
+      List<PreciseIssue> issues = new ArrayList<>(issueCount);
+      for (int j = 0; j < issueCount; ++j) {
+        issues.add(readIssue(in));
+      }
+      result.addIssues(ruleKey, issues);
+    }
+    return result;
+  }
+
+  private static void writeResult(DataOutputStream out, AnalysisResult result) throws IOException {
+    AnalysisResult.Measures measures = result.measures();
+    out.writeBoolean(measures != null);
+    if (measures != null) {
+      writeMeasures(out, measures);
+    }
+    out.writeInt(result.errors().size());
+    for (AnalysisResult.FileError error : result.errors()) {
+      out.writeInt(error.line());
+      out.writeInt(error.column());
+      writeString(out, error.message());
+    }
+    out.writeInt(result.issues().size());
+    for (AnalysisResult.RuleIssues ruleIssues : result.issues()) {
+      RuleKey ruleKey = ruleIssues.ruleKey();
+      out.writeBoolean(ruleKey != null);
+      if (ruleKey != null) {
+        writeString(out, ruleKey.toString());
+      }
+      out.writeInt(ruleIssues.issues().size());
+      for (PreciseIssue issue : ruleIssues.issues()) {
+        writeIssue(out, issue);
+      }
+    }
+  }
+
+  private static AnalysisResult.Measures readMeasures(EntryInput in) throws IOException {
+    int numberOfSchemas = in.readInt();
+    int numberOfPaths = in.readInt();
+    int numberOfOperations = in.readInt();
+    int complexity = in.readInt();
+    BitSet linesOfCode = readLines(in);
+    BitSet linesOfComments = readLines(in);
+    Set<Integer> linesWithNoSonar = readLineSet(in);
+    int tokenCount = in.readLength(5 * Integer.BYTES);
+    List<CpdToken> cpdTokens = new ArrayList<>(tokenCount);
+    for (int i = 0; i < tokenCount; ++i) {
+      int startLine = in.readInt();
+      int startLineOffset = in.readInt();
+      int endLine = in.readInt();
+      int endLineOffset = in.readInt();
+      cpdTokens.add(new CpdToken(startLine, startLineOffset, endLine, endLineOffset, readString(in)));
+    }
+    return new AnalysisResult.Measures(numberOfSchemas, numberOfPaths, numberOfOperations, complexity, linesOfCode,
+      linesOfComments, linesWithNoSonar, cpdTokens);
+  }
+
+  private static void writeMeasures(DataOutputStream out, AnalysisResult.Measures measures) throws IOException {
+    out.writeInt(measures.numberOfSchemas());
+    out.writeInt(measures.numberOfPaths());
+    out.writeInt(measures.numberOfOperations());
+    out.writeInt(measures.complexity());
+    writeLines(out, measures.linesOfCode());
+    writeLines(out, measures.linesOfComments());
+    writeLineSet(out, measures.linesWithNoSonar());
+    out.writeInt(measures.cpdTokens().size());
+    for (CpdToken token : measures.cpdTokens()) {
+      out.writeInt(token.startLine());
+      out.writeInt(token.startLineOffset());
+      out.writeInt(token.endLine());
+      out.writeInt(token.endLineOffset());
+      writeString(out, token.image());
+    }
+  }
+
+  private static BitSet readLines(EntryInput in) throws IOException {
+    long[] words = new long[in.readLength(Long.BYTES)];
+    for (int i = 0; i < words.length; ++i) {
+      words[i] = in.readLong();
+    }
+    return BitSet.valueOf(words);
+  }
+
+  private static void writeLines(DataOutputStream out, BitSet lines) throws IOException {
+    long[] words = lines.toLongArray();
+    out.writeInt(words.length);
+    for (long word : words) {
+      out.writeLong(word);
+    }
+  }
+
+  private static Set<Integer> readLineSet(EntryInput in) throws IOException {
+    int count = in.readLength(Integer.BYTES);
+    Set<Integer> lines = new HashSet<>();
+    for (int i = 0; i < count; ++i) {
+      lines.add(in.readInt());
+    }
+    return lines;
+  }
+
+  private static void writeLineSet(DataOutputStream out, Set<Integer> lines) throws IOException {
+    out.writeInt(lines.size());
+    for (int line : lines) {
+      out.writeInt(line);
+    }
+  }
+
+  private static PreciseIssue readIssue(EntryInput in) throws IOException {
+    Integer cost = in.readBoolean() ? in.readInt() : null;
+    PreciseIssue issue = new PreciseIssue(readLocation(in));
+    if (cost != null) {
+      issue.withCost(cost);
+    }
+    int secondaryCount = in.readLength(LOCATION_MIN_BYTES);
+    for (int i = 0; i < secondaryCount; ++i) {
+      issue.secondary(readLocation(in));
+    }
+    return issue;
+  }
+
+  private static void writeIssue(DataOutputStream out, PreciseIssue issue) throws IOException {
+    Integer cost = issue.cost();
+    out.writeBoolean(cost != null);
+    if (cost != null) {
+      out.writeInt(cost);
+    }
+    writeLocation(out, issue.primaryLocation());
+    out.writeInt(issue.secondaryLocations().size());
+    for (IssueLocation location : issue.secondaryLocations()) {
+      writeLocation(out, location);
+    }
+  }
+
+  private static IssueLocation readLocation(EntryInput in) throws IOException {
+    String message = in.readBoolean() ? readString(in) : null;
+    int startLine = in.readInt();
+    int startLineOffset = in.readInt();
+    int endLine = in.readInt();
+    int endLineOffset = in.readInt();
+    return IssueLocation.atRange(message, startLine, startLineOffset, endLine, endLineOffset, readString(in));
+  }
+
+  private static void writeLocation(DataOutputStream out, IssueLocation location) throws IOException {
+    String message = location.message();
+    out.writeBoolean(message != null);
+    if (message != null) {
+      writeString(out, message);
+    }
+    out.writeInt(location.startLine());
+    out.writeInt(location.startLineOffset());
+    out.writeInt(location.endLine());
+    out.writeInt(location.endLineOffset());
+    writeString(out, location.pointer());
+  }
+
+  // DataOutputStream.writeUTF is limited to 64KB, which a long description in a contract can exceed
+  private static String readString(EntryInput in) throws IOException {
+    byte[] bytes = new byte[in.readLength(1)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String pluginVersion() {
+    Properties properties = new Properties();
+    try (InputStream in = AnalysisCache.class.getResourceAsStream("analyzer.properties")) {
+      if (in != null) {
+        properties.load(in);
+      }
+    } catch (IOException e) {
+      LOG.debug("Unable to read the plugin version", e);
+    }
+    return properties.getProperty("version", "unknown");
+  }
+
+  /**
+   * @return the hash of the jar the class is loaded from or, when it is not loaded from a jar, e.g. from a directory of
+   * classes, the hash of its class file
+   */
+  private static String codeHash(Class<?> type, Map<Path, String> jarHashes) {
+    try {
+      Path jar = jarOf(type);
+      if (jar != null) {
+        String hash = jarHashes.get(jar);
+        if (hash == null) {
+          hash = digestOf(sha256(), jar);
+          jarHashes.put(jar, hash);
+        }
+        return hash;
+      }
+      ClassLoader classLoader = type.getClassLoader();
+      if (classLoader != null) {
+        try (InputStream in = classLoader.getResourceAsStream(type.getName().replace('.', '/') + ".class")) {
+          if (in != null) {
+            return digestOf(sha256(), in);
+          }
+        }
+      }
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      LOG.debug("Unable to hash the code of " + type.getName(), e);
+    }
+    return "unknown";
+  }
+
+  @CheckForNull
+  private static Path jarOf(Class<?> type) throws URISyntaxException {
+    CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+    URL location = codeSource == null ? null : codeSource.getLocation();
+    if (location == null || !"file".equals(location.getProtocol())) {
+      return null;
+    }
+    Path path = Paths.get(location.toURI());
+    return Files.isRegularFile(path) ? path : null;
+  }
+
+  private static Object readField(Field field, Object instance) {
+    try {
+      field.setAccessible(true);
+      return field.get(instance);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException("Unable to read the parameter " + field.getName() + " of " + instance.getClass().getName(), e);
+    }
+  }
+
+  /**
+   * Hashes the content of a file, read in chunks so that large files are never loaded whole in memory.
+   */
+  private static String digestOf(MessageDigest digest, Path path) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(HASH_CHUNK_SIZE);
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      while (channel.read(buffer) >= 0) {
+        buffer.flip();
+        digest.update(buffer);
+        buffer.clear();
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  private static String digestOf(MessageDigest digest, InputStream in) throws IOException {
+    byte[] buffer = new byte[HASH_CHUNK_SIZE];
+    int read;
+    while ((read = in.read(buffer)) >= 0) {
+      digest.update(buffer, 0, read);
+    }
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static void update(MessageDigest digest, String value) {
+    digest.update(value.getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) '\n');
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(2 * bytes.length);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static void deleteRecursively(Path path) throws IOException {
+    try (Stream<Path> paths = Files.walk(path)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(AnalysisCache::deleteQuietly);
+    }
+  }
+
+  private static void deleteQuietly(@Nullable Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOG.debug("Unable to delete " + path, e);
+    }
+  }
+
+  /**
+   * Reads an entry, checking the counts and lengths it declares against the bytes left in it, so that a corrupt entry
+   * never leads to a huge allocation.
+   */
+  private static final class EntryInput extends DataInputStream {
+    EntryInput(InputStream in, long size) {
+      super(new CountingInputStream(in, size));
+    }
+
+    /**
+     * @param elementSize the minimum number of bytes taken by each element counted
+     * @return the count or length read
+     * @throws IOException if the entry is too short to hold that many elements
+     */
+    int readLength(int elementSize) throws IOException {
+      int length = readInt();
+      if (length < 0 || (long) length * elementSize > ((CountingInputStream) in).remaining) {
+        throw new IOException("Corrupt cache entry: " + length + " elements declared, "
+          + ((CountingInputStream) in).remaining + " bytes left");
+      }
+      return length;
+    }
+  }
+
+  private static final class CountingInputStream extends FilterInputStream {
+    private long remaining;
+
+    private CountingInputStream(InputStream in, long size) {
+      super(in);
+      this.remaining = size;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        remaining--;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int count = super.read(b, off, len);
+      if (count > 0) {
+        remaining -= count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      remaining -= skipped;
+      return skipped;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.plugins.openapi.api.VisitorProfile;
+
+/**
+ * Wall time and memory spent in each phase of the analysis and in each rule, summed over all files and all threads.
+ * <p>
+ * Phases are measured with {@link #start()} and {@link #stop(String, Measure)}, and the time spent in the checks is
+ * recorded with {@link #record(String, long, long)}. All methods are thread-safe.
+ */
+public class AnalysisProfiler {
+  public static final String PARSE = "parse";
+  public static final String NOSONAR = "nosonar";
+  public static final String METRICS = "metrics";
+  public static final String CPD = "cpd";
+  public static final String CACHE = "cache";
+  public static final String SAVE_MEASURES = "save measures";
+  public static final String SAVE_ISSUES = "save issues";
+  public static final String RULE_PREFIX = "rule ";
+
+  private final Map<String, Totals> totals = new ConcurrentHashMap<>();
+
+  /**
+   * @return the starting point of a measure, to be passed to {@link #stop(String, Measure)} on the same thread
+   */
+  public Measure start() {
+    return new Measure(System.nanoTime(), VisitorProfile.currentThreadAllocatedBytes());
+  }
+
+  public void stop(String phase, Measure start) {
+    record(phase, System.nanoTime() - start.nanos, VisitorProfile.currentThreadAllocatedBytes() - start.bytes);
+  }
+
+  public void record(String phase, long nanos, long bytes) {
+    Totals phaseTotals = totals.computeIfAbsent(phase, key -> new Totals());
+    phaseTotals.nanos.add(nanos);
+    phaseTotals.bytes.add(bytes);
+    phaseTotals.count.increment();
+  }
+
+  /**
+   * Logs one line per phase, the slowest first.
+   */
+  public void log(Logger logger) {
+    List<Map.Entry<String, Totals>> entries = sortedEntries();
+    if (entries.isEmpty()) {
+      return;
+    }
+    long totalNanos = totalNanos(entries);
+    logger.info("OpenAPI analysis profile (summed over all threads):");
+    logger.info(String.format(Locale.ENGLISH, "  %-40s %12s %7s %14s %8s", "phase", "time (ms)", "%", "allocated (KB)", "count"));
+    for (Map.Entry<String, Totals> entry : entries) {
+      Totals phaseTotals = entry.getValue();
+      long nanos = phaseTotals.nanos.sum();
+      logger.info(String.format(Locale.ENGLISH, "  %-40s %12d %6.1f%% %14d %8d",
+        entry.getKey(),
+        nanos / 1_000_000,
+        totalNanos == 0 ? 0.0 : (100.0 * nanos / totalNanos),
+        phaseTotals.bytes.sum() / 1024,
+        phaseTotals.count.sum()));
+    }
+  }
+
+  /**
+   * Writes the profile as a JSON document, the slowest phase first.
+   */
+  public void writeJson(Path path) throws IOException {
+    List<Map.Entry<String, Totals>> entries = sortedEntries();
+    Path parent = path.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      writer.write("{\n  \"totalNanos\": " + totalNanos(entries) + ",\n  \"phases\": [");
+      String separator = "\n";
+      for (Map.Entry<String, Totals> entry : entries) {
+        Totals phaseTotals = entry.getValue();
+        writer.write(separator);
+        writer.write("    {\"name\": \"" + escape(entry.getKey()) + "\", \"nanos\": " + phaseTotals.nanos.sum()
+          + ", \"allocatedBytes\": " + phaseTotals.bytes.sum() + ", \"count\": " + phaseTotals.count.sum() + "}");
+        separator = ",\n";
+      }
+      writer.write("\n  ]\n}\n");
+    }
+  }
+
+  private List<Map.Entry<String, Totals>> sortedEntries() {
+    List<Map.Entry<String, Totals>> entries = new ArrayList<>(totals.entrySet());
+    entries.sort(Comparator.comparingLong((Map.Entry<String, Totals> entry) -> entry.getValue().nanos.sum()).reversed()
+      .thenComparing(Map.Entry::getKey));
+    return entries;
+  }
+
+  private static long totalNanos(List<Map.Entry<String, Totals>> entries) {
+    long total = 0;
+    for (Map.Entry<String, Totals> entry : entries) {
+      total += entry.getValue().nanos.sum();
+    }
+    return total;
+  }
+
+  private static String escape(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        escaped.append('\\').append(c);
+      } else if (c < 0x20) {
+        escaped.append(String.format("\\u%04x", (int) c));
+      } else {
+        escaped.append(c);
+      }
+    }
+    return escaped.toString();
+  }
+
+  /**
+   * The starting point of a measure.
+   */
+  public static final class Measure {
+    private final long nanos;
+    private final long bytes;
+
+    private Measure(long nanos, long bytes) {
+      this.nanos = nanos;
+      this.bytes = bytes;
+    }
+  }
+
+  private static final class Totals {
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder count = new LongAdder();
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.plugins.openapi.api.PreciseIssue;
+import org.sonar.plugins.openapi.cpd.OpenApiCpdAnalyzer.CpdToken;
+
+/**
+ * Everything the analysis of a single file produced, kept apart from the {@link org.sonar.api.batch.sensor.SensorContext}
+ * so that files can be analyzed on any thread and saved later on a single one.
+ */
+class AnalysisResult {
+  private final InputFile inputFile;
+  private final List<RuleIssues> issues = new ArrayList<>();
+  private final List<FileError> errors = new ArrayList<>();
+  private final List<Path> externalDocuments = new ArrayList<>();
+  private Measures measures;
+  private boolean aborted;
+
+  AnalysisResult(InputFile inputFile) {
+    this.inputFile = inputFile;
+  }
+
+  InputFile inputFile() {
+    return inputFile;
+  }
+
+  void addIssues(@Nullable RuleKey ruleKey, List<PreciseIssue> ruleIssues) {
+    issues.add(new RuleIssues(ruleKey, ruleIssues));
+  }
+
+  /**
+   * Adds an issue to the ones of its rule, or opens the issues of a new rule if the previous issue was not raised by
+   * the same rule.
+   */
+  void addIssue(@Nullable RuleKey ruleKey, PreciseIssue issue) {
+    RuleIssues last = issues.isEmpty() ? null : issues.get(issues.size() - 1);
+    if (last == null || !Objects.equals(last.ruleKey, ruleKey)) {
+      last = new RuleIssues(ruleKey, new ArrayList<>());
+      issues.add(last);
+    }
+    last.issues.add(issue);
+  }
+
+  List<RuleIssues> issues() {
+    return Collections.unmodifiableList(issues);
+  }
+
+  void addError(int line, int column, String message) {
+    errors.add(new FileError(line, column, message));
+  }
+
+  List<FileError> errors() {
+    return Collections.unmodifiableList(errors);
+  }
+
+  void addExternalDocuments(Collection<Path> paths) {
+    externalDocuments.addAll(paths);
+  }
+
+  /**
+   * @return the other files that the references of the file point to, which the result also depends on
+   */
+  List<Path> externalDocuments() {
+    return Collections.unmodifiableList(externalDocuments);
+  }
+
+  void setAborted() {
+    this.aborted = true;
+  }
+
+  /**
+   * @return {@code true} if the analysis of the file was stopped before its end, so that its issues, and possibly its
+   * measures, are missing
+   */
+  boolean isAborted() {
+    return aborted;
+  }
+
+  void setMeasures(Measures measures) {
+    this.measures = measures;
+  }
+
+  /**
+   * @return the measures of the file, or {@code null} if the file could not be parsed
+   */
+  @CheckForNull
+  Measures measures() {
+    return measures;
+  }
+
+  static class RuleIssues {
+    private final RuleKey ruleKey;
+    private final List<PreciseIssue> issues;
+
+    RuleIssues(@Nullable RuleKey ruleKey, List<PreciseIssue> issues) {
+      this.ruleKey = ruleKey;
+      this.issues = issues;
+    }
+
+    RuleKey ruleKey() {
+      return ruleKey;
+    }
+
+    List<PreciseIssue> issues() {
+      return issues;
+    }
+  }
+
+  static class FileError {
+    private final int line;
+    private final int column;
+    private final String message;
+
+    FileError(int line, int column, String message) {
+      this.line = line;
+      this.column = column;
+      this.message = message;
+    }
+
+    int line() {
+      return line;
+    }
+
+    int column() {
+      return column;
+    }
+
+    String message() {
+      return message;
+    }
+  }
+
+  static class Measures {
+    private final int numberOfSchemas;
+    private final int numberOfPaths;
+    private final int numberOfOperations;
+    private final int complexity;
+    private final BitSet linesOfCode;
+    private final BitSet linesOfComments;
+    private final Set<Integer> linesWithNoSonar;
+    private final List<CpdToken> cpdTokens;
+
+    Measures(int numberOfSchemas, int numberOfPaths, int numberOfOperations, int complexity, BitSet linesOfCode,
+      BitSet linesOfComments, Set<Integer> linesWithNoSonar, List<CpdToken> cpdTokens) {
+      this.numberOfSchemas = numberOfSchemas;
+      this.numberOfPaths = numberOfPaths;
+      this.numberOfOperations = numberOfOperations;
+      this.complexity = complexity;
+      this.linesOfCode = linesOfCode;
+      this.linesOfComments = linesOfComments;
+      this.linesWithNoSonar = linesWithNoSonar;
+      this.cpdTokens = cpdTokens;
+    }
+
+    int numberOfSchemas() {
+      return numberOfSchemas;
+    }
+
+    int numberOfPaths() {
+      return numberOfPaths;
+    }
+
+    int numberOfOperations() {
+      return numberOfOperations;
+    }
+
+    int complexity() {
+      return complexity;
+    }
+
+    BitSet linesOfCode() {
+      return linesOfCode;
+    }
+
+    BitSet linesOfComments() {
+      return linesOfComments;
+    }
+
+    Set<Integer> linesWithNoSonar() {
+      return linesWithNoSonar;
+    }
+
+    List<CpdToken> cpdTokens() {
+      return cpdTokens;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * SonarQube OpenAPI Plugin
+ * Copyright (C) 2018-2019 Societe Generale
+ * vincent.girard-reydet AT socgen DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.openapi;
+
+import com.sonar.sslr.api.RecognitionException;
+import java.util.List;
+import java.util.function.BiConsumer;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.openapi.metrics.FileLinesVisitor;
+import org.sonar.openapi.metrics.FileMetrics;
+import org.sonar.openapi.parser.OpenApiParser;
+import org.sonar.plugins.openapi.api.AnalysisBudget;
+import org.sonar.plugins.openapi.api.BudgetExceededException;
+import org.sonar.plugins.openapi.api.ExternalDocuments;
+import org.sonar.plugins.openapi.api.OpenApiCheck;
+import org.sonar.plugins.openapi.api.OpenApiFile;
+import org.sonar.plugins.openapi.api.OpenApiVisitorContext;
+import org.sonar.plugins.openapi.api.OpenApiVisitorDispatcher;
+import org.sonar.plugins.openapi.api.PreciseIssue;
+import org.sonar.plugins.openapi.api.VisitorProfile;
+import org.sonar.plugins.openapi.cpd.OpenApiCpdAnalyzer;
+import org.sonar.plugins.openapi.cpd.OpenApiCpdAnalyzer.CpdToken;
+import org.sonar.sslr.yaml.grammar.JsonNode;
+import org.sonar.sslr.yaml.grammar.ValidationException;
+import org.sonar.sslr.yaml.grammar.YamlParser;
+
+/**
+ * Parses and checks files, one at a time. An instance owns its checks and its parser, so it must only be used by one
+ * thread at a time.
+ */
+class FileAnalyzer {
+  private static final Logger LOG = Loggers.get(FileAnalyzer.class);
+
+  private final OpenApiChecks checks;
+  private final OpenApiVisitorDispatcher dispatcher;
+  private final YamlParser parser;
+  private final AnalysisProfiler profiler;
+  private final VisitorProfile checksProfile;
+  private final ExternalDocuments documents;
+  private final AnalysisBudget budget;
+  private final boolean keepPointers;
+
+  /**
+   * @param profiler where to record the time spent in each phase and each rule, or {@code null} to not profile
+   * @param documents the other files that references can point to, or {@code null} to only resolve references within
+   *                  each file
+   * @param budget the time and nodes the analysis of each file can spend before it is aborted
+   * @param keepPointers whether the pointers of the locations of the issues are needed, e.g. to cache them
+   */
+  FileAnalyzer(OpenApiConfiguration configuration, OpenApiChecks checks, boolean isv2, @Nullable AnalysisProfiler profiler,
+    @Nullable ExternalDocuments documents, AnalysisBudget budget, boolean keepPointers) {
+    this.checks = checks;
+    this.budget = budget;
+    this.keepPointers = keepPointers;
+    this.documents = documents;
+    this.dispatcher = new OpenApiVisitorDispatcher(checks.all());
+    this.parser = OpenApiParser.create(configuration, isv2);
+    this.profiler = profiler;
+    if (profiler != null) {
+      this.checksProfile = new VisitorProfile();
+      this.dispatcher.setProfile(checksProfile);
+    } else {
+      this.checksProfile = null;
+    }
+  }
+
+  AnalysisResult analyze(InputFile inputFile) {
+    AnalysisResult result = new AnalysisResult(inputFile);
+    OpenApiFile openApiFile = SonarQubeOpenApiFile.create(inputFile);
+    OpenApiVisitorContext visitorContext;
+    AnalysisBudget.Meter meter = budget.isUnlimited() ? null : budget.start();
+
+    try {
+      // the parser cannot be interrupted, but the time it takes is spent from the budget all the same
+      JsonNode rootTree = parse(inputFile);
+      AnalysisProfiler.Measure start = start();
+      visitorContext = new OpenApiVisitorContext(rootTree, parser.getIssues(), openApiFile, documents, meter);
+      stop(AnalysisProfiler.NOSONAR, start);
+      result.setMeasures(computeMeasures(visitorContext, meter));
+    } catch (BudgetExceededException e) {
+      // the file is too large to even be measured: it is reported, without measures nor issues
+      LOG.error("Analysis of file " + inputFile.filename() + " aborted: " + e.getMessage());
+      result.addError(1, 0, e.getMessage());
+      result.setAborted();
+      return result;
+    } catch (ValidationException e) {
+      visitorContext = new OpenApiVisitorContext(openApiFile, e);
+      LOG.error("Error during file validation: " + inputFile.filename() + "\"\n" + e.formatMessage());
+      for (ValidationException cause : e.getCauses()) {
+        collectErrors(cause, result);
+      }
+
+    } catch (RecognitionException e) {
+      visitorContext = new OpenApiVisitorContext(openApiFile, e);
+      LOG.error("Unable to parse file: " + inputFile.filename() + "\"\n" + e.getMessage());
+      collectErrors(e, result);
+    }
+
+    try {
+      dispatcher.scanFileForIssues(visitorContext, new IssueRecorder(result));
+    } catch (BudgetExceededException e) {
+      // the measures are kept, but partial issues would be misleading
+      LOG.error("Checks of file " + inputFile.filename() + " aborted: " + e.getMessage());
+      result.addError(1, 0, e.getMessage());
+      result.setAborted();
+    }
+    if (profiler != null) {
+      for (OpenApiCheck check : checks.all()) {
+        RuleKey ruleKey = checks.ruleKeyFor(check);
+        profiler.record(AnalysisProfiler.RULE_PREFIX + ruleKey, checksProfile.elapsedNanos(check), checksProfile.allocatedBytes(check));
+      }
+    }
+    if (checksProfile != null) {
+      checksProfile.reset();
+    }
+    result.addExternalDocuments(visitorContext.externalDocuments());
+    return result;
+  }
+
+  private JsonNode parse(InputFile inputFile) {
+    AnalysisProfiler.Measure start = start();
+    try {
+      return parser.parse(inputFile.file());
+    } finally {
+      stop(AnalysisProfiler.PARSE, start);
+    }
+  }
+
+  @CheckForNull
+  private AnalysisProfiler.Measure start() {
+    return profiler == null ? null : profiler.start();
+  }
+
+  private void stop(String phase, @Nullable AnalysisProfiler.Measure start) {
+    if (profiler != null && start != null) {
+      profiler.stop(phase, start);
+    }
+  }
+
+  private static void collectErrors(RecognitionException e, AnalysisResult result) {
+    int line = e.getLine();
+    if (line == 0) {
+      line = 1;
+    }
+    int column = 0;
+    if (e instanceof ValidationException) {
+      column = ((ValidationException) e).getNode().getToken().getColumn();
+      for (ValidationException cause : ((ValidationException) e).getCauses()) {
+        collectErrors(cause, result);
+      }
+    }
+    result.addError(line, column, e.getMessage());
+  }
+
+  /**
+   * Adds the issues of the checks to the result as they are handed over, looking the rule of each check up once.
+   */
+  private final class IssueRecorder implements BiConsumer<OpenApiCheck, PreciseIssue> {
+    private final AnalysisResult result;
+    private OpenApiCheck check;
+    private RuleKey ruleKey;
+
+    private IssueRecorder(AnalysisResult result) {
+      this.result = result;
+    }
+
+    @Override
+    public void accept(OpenApiCheck issueCheck, PreciseIssue issue) {
+      if (issueCheck != check) {
+        check = issueCheck;
+        ruleKey = checks.ruleKeyFor(issueCheck);
+      }
+      // results can wait to be saved while other files are parsed: they must not keep the tree of this one
+      issue.detach(keepPointers);
+      result.addIssue(ruleKey, issue);
+    }
+  }
+
+  private AnalysisResult.Measures computeMeasures(OpenApiVisitorContext visitorContext, @Nullable AnalysisBudget.Meter meter) {
+    AnalysisProfiler.Measure start = start();
+    FileMetrics fileMetrics = new FileMetrics(visitorContext);
+    FileLinesVisitor fileLinesVisitor = fileMetrics.fileLinesVisitor();
+    stop(AnalysisProfiler.METRICS, start);
+    start = start();
+    List<CpdToken> cpdTokens = OpenApiCpdAnalyzer.collectCpdTokens(visitorContext, meter);
+    stop(AnalysisProfiler.CPD, start);
+    return new AnalysisResult.Measures(
+      fileMetrics.numberOfSchemas(),
+      fileMetrics.numberOfPaths(),
+      fileMetrics.numberOfOperations(),
+      fileMetrics.complexity(),
+      fileLinesVisitor.getLinesOfCodeBits(),
+      fileLinesVisitor.getLinesOfCommentsBits(),
+      fileLinesVisitor.getLinesWithNoSonar(),
+      cpdTokens);
+  }
+}
@@ -19,9 +19,21 @@
  */
 package org.sonar.openapi;
 
-import com.sonar.sslr.api.RecognitionException;
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.fs.TextRange;
 import org.sonar.api.batch.sensor.SensorContext;
@@ -35,43 +47,100 @@ import org.sonar.api.measures.Metric;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
-import org.sonar.openapi.metrics.FileLinesVisitor;
-import org.sonar.openapi.metrics.FileMetrics;
 import org.sonar.openapi.metrics.OpenApiMetrics;
-import org.sonar.openapi.parser.OpenApiParser;
+import org.sonar.openapi.parser.DocumentCache;
+import org.sonar.plugins.openapi.api.AnalysisBudget;
 import org.sonar.plugins.openapi.api.IssueLocation;
 import org.sonar.plugins.openapi.api.OpenApiCheck;
-import org.sonar.plugins.openapi.api.OpenApiFile;
-import org.sonar.plugins.openapi.api.OpenApiVisitorContext;
 import org.sonar.plugins.openapi.api.PreciseIssue;
 import org.sonar.plugins.openapi.cpd.OpenApiCpdAnalyzer;
-import org.sonar.sslr.yaml.grammar.ValidationException;
-import org.sonar.sslr.yaml.grammar.YamlParser;
 
 public class OpenApiAnalyzer {
   private static final Logger LOG = Loggers.get(OpenApiAnalyzer.class);
-
   private final SensorContext context;
   private final List<InputFile> inputFiles;
-  private final OpenApiChecks checks;
-  private final YamlParser parser;
+  private final Supplier<OpenApiChecks> checksSupplier;
+  // checks already supplied, to compute the fingerprint of the cache, and not yet given to an analyzer
+  private final AtomicReference<OpenApiChecks> unusedChecks = new AtomicReference<>();
+  private final OpenApiConfiguration configuration;
+  private final boolean isv2;
+  private final int threads;
   private final NoSonarFilter noSonarFilter;
   private final OpenApiCpdAnalyzer cpdAnalyzer;
   private FileLinesContextFactory fileLinesContextFactory;
+  private File cacheDirectory;
+  private AnalysisProfiler profiler;
+  private DocumentCache documents;
+  private AnalysisBudget budget = AnalysisBudget.UNLIMITED;
+  private int maxIssuesPerRule = 0;
 
   public OpenApiAnalyzer(SensorContext context, OpenApiChecks checks, FileLinesContextFactory fileLinesContextFactory, NoSonarFilter noSonarFilter, List<InputFile> inputFiles, boolean isv2) {
+    this(context, () -> checks, fileLinesContextFactory, noSonarFilter, inputFiles, isv2, 1);
+  }
+
+  /**
+   * Creates an analyzer able to scan files on several threads.
+   * @param checksSupplier provides the checks of each thread. It must return new check instances at each call when
+   *                       {@code threads} is greater than 1, as checks are not thread-safe.
+   * @param threads the number of threads analyzing files. Whatever this number, results are saved in the order of
+   *                {@code inputFiles}, from the calling thread, while the next files are being analyzed.
+   */
+  public OpenApiAnalyzer(SensorContext context, Supplier<OpenApiChecks> checksSupplier, FileLinesContextFactory fileLinesContextFactory, NoSonarFilter noSonarFilter, List<InputFile> inputFiles, boolean isv2, int threads) {
     this.context = context;
-    this.checks = checks;
+    this.checksSupplier = checksSupplier;
     this.fileLinesContextFactory = fileLinesContextFactory;
     this.noSonarFilter = noSonarFilter;
     this.cpdAnalyzer = new OpenApiCpdAnalyzer(context);
     this.inputFiles = inputFiles;
-    OpenApiConfiguration configuration = new OpenApiConfiguration(context.fileSystem().encoding(), true);
-    if (isv2) {
-      this.parser = OpenApiParser.createV2(configuration);
-    } else {
-      this.parser = OpenApiParser.createV3(configuration);
-    }
+    this.isv2 = isv2;
+    this.threads = threads;
+    this.configuration = new OpenApiConfiguration(context.fileSystem().encoding(), true);
+  }
+
+  /**
+   * Enables the incremental analysis: the results of the analysis of each file are kept in {@code cacheDirectory}, and
+   * replayed instead of analyzing the file again as long as its content and the active rules do not change.
+   * @param cacheDirectory the directory of the cache, or {@code null} to disable it
+   */
+  public void setCacheDirectory(@Nullable File cacheDirectory) {
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  /**
+   * Records the time and memory spent in each phase of the analysis and in each rule.
+   * @param profiler where to record the measures, or {@code null} to not profile the analysis
+   */
+  public void setProfiler(@Nullable AnalysisProfiler profiler) {
+    this.profiler = profiler;
+  }
+
+  /**
+   * Sets the cache of the other files that references point to, e.g. {@code ../common/errors.yaml#/Error}. Sharing it
+   * between analyzers ensures that each of these files is parsed once per analysis. When not set, the analyzer uses a
+   * cache of its own. When files are analyzed on several threads, each thread gets a cache of its own, created from
+   * this one, as the parsed files are not to be read by several threads.
+   */
+  public void setDocuments(@Nullable DocumentCache documents) {
+    this.documents = documents;
+  }
+
+  /**
+   * Limits the time and the number of nodes the analysis of each file can spend, from its parsing to its checks. The
+   * analysis of a file that exceeds it is aborted: an analysis error is reported on the file, none of its issues are
+   * saved, nor its measures unless they were computed before, and the analysis goes on with the next file.
+   */
+  public void setBudget(AnalysisBudget budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * Limits the number of issues each rule reports on a file. Beyond this limit, a single issue on the file tells how
+   * many issues of the rule were dropped.
+   * @param maxIssuesPerRule the maximum number of issues of a rule on a file, or 0 for no limit
+   * @see OpenApiCheck#setMaxIssues(int)
+   */
+  public void setMaxIssuesPerRule(int maxIssuesPerRule) {
+    this.maxIssuesPerRule = maxIssuesPerRule;
   }
 
   private static NewIssueLocation newLocation(InputFile inputFile, NewIssue issue, IssueLocation location) {
@@ -94,60 +163,160 @@ public class OpenApiAnalyzer {
   }
 
   public void scanFiles() {
+    if (documents == null) {
+      documents = new DocumentCache(configuration, DocumentCache.DEFAULT_MAX_SIZE);
+    }
+    AnalysisCache cache = null;
+    if (cacheDirectory != null) {
+      // the checks of the first analyzer, so that the checks are not created once more for the cache alone
+      OpenApiChecks checks = checksSupplier.get();
+      unusedChecks.set(checks);
+      String fingerprint = AnalysisCache.fingerprint(checks, configuration.getCharset(), maxIssuesPerRule);
+      cache = new AnalysisCache(cacheDirectory.toPath(), fingerprint, isv2);
+    }
+    if (inputFiles.size() > 1) {
+      scanFilesInParallel(cache);
+    } else {
+      // nothing to overlap the saving of a single file with
+      scanFilesSequentially(cache);
+    }
+    if (cache != null && !context.isCancelled()) {
+      LOG.info("{}/{} OpenAPI file(s) loaded from the analysis cache", cache.hits(), inputFiles.size());
+      cache.prune();
+    }
+  }
+
+  private void scanFilesSequentially(@Nullable AnalysisCache cache) {
+    // created on the first cache miss only, and released with this scan rather than kept by the calling thread
+    AtomicReference<FileAnalyzer> analyzer = new AtomicReference<>();
+    Supplier<FileAnalyzer> lazyAnalyzer = () -> analyzer.updateAndGet(a -> a == null ? newFileAnalyzer(documents) : a);
     for (InputFile openApiFile : inputFiles) {
       if (context.isCancelled()) {
         return;
       }
-      scanFile(openApiFile);
+      save(analyze(lazyAnalyzer, cache, openApiFile));
     }
   }
 
-  private void scanFile(InputFile inputFile) {
-    OpenApiFile openApiFile = SonarQubeOpenApiFile.create(inputFile);
-    OpenApiVisitorContext visitorContext;
-
+  /**
+   * Files are analyzed by a pool of workers, each owning its parser, checks and referenced documents. Results are
+   * saved from the calling thread, in the order of the input files, with at most a few files per worker being analyzed
+   * ahead of the saved one. Even with a single worker, saving the results of a file thus overlaps with the analysis of
+   * the next ones, while the sensor context is only used from the calling thread.
+   */
+  private void scanFilesInParallel(@Nullable AnalysisCache cache) {
+    AtomicInteger threadCount = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "openapi-analyzer-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    // a single worker is the only reader of the documents, each scan awaiting all of its analyses before returning
+    ThreadLocal<FileAnalyzer> analyzers = ThreadLocal.withInitial(
+      () -> newFileAnalyzer(threads == 1 ? documents : documents.forAnotherThread()));
+    Deque<Future<AnalysisResult>> pending = new ArrayDeque<>();
+    Iterator<InputFile> files = inputFiles.iterator();
     try {
-      visitorContext = new OpenApiVisitorContext(parser.parse(inputFile.file()), parser.getIssues(), openApiFile);
-      saveMeasures(inputFile, visitorContext);
-    } catch (ValidationException e) {
-      visitorContext = new OpenApiVisitorContext(openApiFile, e);
-      LOG.error("Error during file validation: " + inputFile.filename() + "\"\n" + e.formatMessage());
-      for (ValidationException cause : e.getCauses()) {
-        dumpException(cause, inputFile);
+      while (!context.isCancelled()) {
+        while (files.hasNext() && pending.size() < 2 * threads) {
+          InputFile inputFile = files.next();
+          pending.add(executor.submit(() -> analyze(analyzers::get, cache, inputFile)));
+        }
+        if (pending.isEmpty()) {
+          return;
+        }
+        save(await(pending.poll()));
       }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
 
-    } catch (RecognitionException e) {
-      visitorContext = new OpenApiVisitorContext(openApiFile, e);
-      LOG.error("Unable to parse file: " + inputFile.filename() + "\"\n" + e.getMessage());
-      dumpException(e, inputFile);
+  /**
+   * Analyzes the file, unless its result can be replayed from the cache. The analyzer is only requested on a cache miss.
+   */
+  private AnalysisResult analyze(Supplier<FileAnalyzer> analyzer, @Nullable AnalysisCache cache, InputFile inputFile) {
+    if (cache == null) {
+      return analyzer.get().analyze(inputFile);
     }
+    AnalysisProfiler.Measure start = start();
+    String key = cache.keyOf(inputFile);
+    AnalysisResult result = key == null ? null : cache.read(key, inputFile);
+    stop(AnalysisProfiler.CACHE, start);
+    if (result == null) {
+      result = analyzer.get().analyze(inputFile);
+      // an aborted analysis may well succeed next time, e.g. on a less loaded machine
+      if (key != null && !result.isAborted()) {
+        start = start();
+        cache.write(key, result);
+        stop(AnalysisProfiler.CACHE, start);
+      }
+    }
+    return result;
+  }
+
+  private static AnalysisResult await(Future<AnalysisResult> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the analysis of a file", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
 
+  private FileAnalyzer newFileAnalyzer(DocumentCache documents) {
+    OpenApiChecks checks = unusedChecks.getAndSet(null);
+    if (checks == null) {
+      checks = checksSupplier.get();
+    }
     for (OpenApiCheck check : checks.all()) {
-      saveIssues(inputFile, check, check.scanFileForIssues(visitorContext));
+      check.setMaxIssues(maxIssuesPerRule);
     }
+    return new FileAnalyzer(configuration, checks, isv2, profiler, documents, budget, cacheDirectory != null);
+  }
+
+  @CheckForNull
+  private AnalysisProfiler.Measure start() {
+    return profiler == null ? null : profiler.start();
   }
 
-  private void dumpException(RecognitionException e, InputFile inputFile) {
-    int line = e.getLine();
-    if (line == 0) {
-      line = 1;
+  private void stop(String phase, @Nullable AnalysisProfiler.Measure start) {
+    if (profiler != null && start != null) {
+      profiler.stop(phase, start);
     }
-    int column = 0;
-    if (e instanceof ValidationException) {
-      column = ((ValidationException) e).getNode().getToken().getColumn();
-      for (ValidationException cause : ((ValidationException) e).getCauses()) {
-        dumpException(cause, inputFile);
-      }
+  }
+
+  private void save(AnalysisResult result) {
+    InputFile inputFile = result.inputFile();
+    AnalysisResult.Measures measures = result.measures();
+    if (measures != null) {
+      AnalysisProfiler.Measure start = start();
+      saveMeasures(inputFile, measures);
+      stop(AnalysisProfiler.SAVE_MEASURES, start);
     }
-    context.newAnalysisError()
+    for (AnalysisResult.FileError error : result.errors()) {
+      context.newAnalysisError()
         .onFile(inputFile)
-        .at(inputFile.newPointer(line, column))
-        .message(e.getMessage())
+        .at(inputFile.newPointer(error.line(), error.column()))
+        .message(error.message())
         .save();
+    }
+    AnalysisProfiler.Measure start = start();
+    for (AnalysisResult.RuleIssues ruleIssues : result.issues()) {
+      saveIssues(inputFile, ruleIssues.ruleKey(), ruleIssues.issues());
+    }
+    stop(AnalysisProfiler.SAVE_ISSUES, start);
   }
 
-  private void saveIssues(InputFile inputFile, OpenApiCheck check, List<PreciseIssue> issues) {
-    RuleKey ruleKey = checks.ruleKeyFor(check);
+  private void saveIssues(InputFile inputFile, RuleKey ruleKey, List<PreciseIssue> issues) {
     for (PreciseIssue preciseIssue : issues) {
 
       NewIssue newIssue = context
@@ -169,30 +338,26 @@ public class OpenApiAnalyzer {
     }
   }
 
-  private void saveMeasures(InputFile inputFile, OpenApiVisitorContext visitorContext) {
-    FileMetrics fileMetrics = new FileMetrics(visitorContext);
-    FileLinesVisitor fileLinesVisitor = fileMetrics.fileLinesVisitor();
-
-    cpdAnalyzer.pushCpdTokens(inputFile, visitorContext);
-    noSonarFilter.noSonarInFile(inputFile, fileLinesVisitor.getLinesWithNoSonar());
-
-    Set<Integer> linesOfCode = fileLinesVisitor.getLinesOfCode();
-    Set<Integer> linesOfComments = fileLinesVisitor.getLinesOfComments();
+  private void saveMeasures(InputFile inputFile, AnalysisResult.Measures measures) {
+    cpdAnalyzer.pushCpdTokens(inputFile, measures.cpdTokens());
+    noSonarFilter.noSonarInFile(inputFile, measures.linesWithNoSonar());
 
-    saveMetricOnFile(inputFile, CoreMetrics.NCLOC, linesOfCode.size());
-    saveMetricOnFile(inputFile, CoreMetrics.COMMENT_LINES, linesOfComments.size());
+    saveMetricOnFile(inputFile, CoreMetrics.NCLOC, measures.linesOfCode().cardinality());
+    saveMetricOnFile(inputFile, CoreMetrics.COMMENT_LINES, measures.linesOfComments().cardinality());
 
-    saveMetricOnFile(inputFile, OpenApiMetrics.SCHEMAS_COUNT, fileMetrics.numberOfSchemas());
-    saveMetricOnFile(inputFile, OpenApiMetrics.OPERATIONS_COUNT, fileMetrics.numberOfOperations());
-    saveMetricOnFile(inputFile, OpenApiMetrics.PATHS_COUNT, fileMetrics.numberOfPaths());
+    saveMetricOnFile(inputFile, OpenApiMetrics.SCHEMAS_COUNT, measures.numberOfSchemas());
+    saveMetricOnFile(inputFile, OpenApiMetrics.OPERATIONS_COUNT, measures.numberOfOperations());
+    saveMetricOnFile(inputFile, OpenApiMetrics.PATHS_COUNT, measures.numberOfPaths());
 
-    saveMetricOnFile(inputFile, CoreMetrics.COMPLEXITY, fileMetrics.complexity());
+    saveMetricOnFile(inputFile, CoreMetrics.COMPLEXITY, measures.complexity());
 
     FileLinesContext fileLinesContext = fileLinesContextFactory.createFor(inputFile);
-    for (int line : linesOfCode) {
+    BitSet linesOfCode = measures.linesOfCode();
+    for (int line = linesOfCode.nextSetBit(0); line >= 0; line = linesOfCode.nextSetBit(line + 1)) {
       fileLinesContext.setIntValue(CoreMetrics.NCLOC_DATA_KEY, line, 1);
     }
-    for (int line : linesOfComments) {
+    BitSet linesOfComments = measures.linesOfComments();
+    for (int line = linesOfComments.nextSetBit(0); line >= 0; line = linesOfComments.nextSetBit(line + 1)) {
       fileLinesContext.setIntValue(CoreMetrics.COMMENT_LINES_DATA_KEY, line, 1);
     }
     fileLinesContext.save();
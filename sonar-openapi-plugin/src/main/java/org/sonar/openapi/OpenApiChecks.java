@@ -28,7 +28,7 @@ import org.sonar.plugins.openapi.api.OpenApiCustomRuleRepository;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -37,7 +37,7 @@ import java.util.Set;
  */
 public class OpenApiChecks {
   private final CheckFactory checkFactory;
-  private Set<Checks<OpenApiCheck>> checksByRepository = new HashSet<>();
+  private Set<Checks<OpenApiCheck>> checksByRepository = new LinkedHashSet<>();
 
   private OpenApiChecks(CheckFactory checkFactory) {
     this.checkFactory = checkFactory;
@@ -20,6 +20,7 @@
 package org.sonar.openapi;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.plugins.openapi.api.OpenApiFile;
 
@@ -40,6 +41,11 @@ public abstract class SonarQubeOpenApiFile implements OpenApiFile {
     return inputFile.filename();
   }
 
+  @Override
+  public Path path() {
+    return inputFile.path();
+  }
+
   public InputFile inputFile() {
     return inputFile;
   }
@@ -20,6 +20,7 @@
 package org.sonar.plugins.openapi;
 
 import org.sonar.api.Plugin;
+import org.sonar.api.PropertyType;
 import org.sonar.api.config.PropertyDefinition;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.openapi.metrics.OpenApiMetrics;
@@ -65,6 +66,102 @@ public class OpenApiPlugin implements Plugin {
         .multiValues(true)
         .defaultValue(OpenApiProperties.DEFAULT_V3_PATH)
         .build(),
+      PropertyDefinition.builder(OpenApiProperties.THREADS_KEY)
+        .index(12)
+        .name("Analysis threads")
+        .description("Number of threads analyzing OpenAPI contracts. Use 0 to have one thread per available processor.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .defaultValue(String.valueOf(OpenApiProperties.DEFAULT_THREADS))
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.CACHE_ENABLED_KEY)
+        .index(13)
+        .name("Analysis cache")
+        .description("Keep the results of the analysis of each contract, and reuse them in the next analyses as long as the contract and the active rules do not change.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("false")
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.CACHE_PATH_KEY)
+        .index(14)
+        .name("Analysis cache directory")
+        .description("Directory of the analysis cache. Relative paths are resolved against the project base directory. Defaults to a directory in the scanner working directory.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.PROFILING_KEY)
+        .index(15)
+        .name("Analysis profiling")
+        .description("Log the time and memory spent in each phase of the analysis and in each rule, summed over all contracts.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("false")
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.PROFILING_REPORT_KEY)
+        .index(16)
+        .name("Analysis profiling report")
+        .description("Path of a JSON file where to write the analysis profile. Relative paths are resolved against the project base directory. Setting this property enables profiling.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.DOCUMENTS_CACHE_SIZE_KEY)
+        .index(17)
+        .name("Referenced files cache size")
+        .description("Maximum size, in megabytes, of the files referred to by contracts (e.g. $ref: '../common/errors.yaml#/Error') that each analysis thread keeps parsed in memory. The least recently used files are evicted first.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .defaultValue(String.valueOf(OpenApiProperties.DEFAULT_DOCUMENTS_CACHE_SIZE))
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.DETECT_VERSION_KEY)
+        .index(18)
+        .name("Detect OpenAPI versions")
+        .description("Find out the version of each OpenAPI file from its swagger or openapi property, instead of from the v2 and v3 path patterns. All the files of the OpenAPI language are then considered, and the ones that declare no version are skipped.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.BOOLEAN)
+        .defaultValue("false")
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.FILE_TIMEOUT_KEY)
+        .index(19)
+        .name("File analysis timeout")
+        .description("Time, in seconds, that the analysis of a single contract can take, parsing included. Beyond it, the analysis of the contract is aborted and an analysis error is reported on it, and the analysis goes on with the next contract. Use 0 for no limit.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .defaultValue("0")
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.FILE_MAX_NODES_KEY)
+        .index(20)
+        .name("File analysis node budget")
+        .description("Number of nodes that the analysis of a single contract can visit, from the computation of its metrics to its checks, references followed included. Beyond it, the analysis of the contract is aborted and an analysis error is reported on it, and the analysis goes on with the next contract. Use 0 for no limit.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .defaultValue("0")
+        .build(),
+      PropertyDefinition.builder(OpenApiProperties.MAX_ISSUES_PER_RULE_KEY)
+        .index(21)
+        .name("Maximum issues per rule and file")
+        .description("Number of issues that each rule reports on a single contract. Beyond it, a single issue on the contract tells how many issues of the rule were not reported. Use 0 for no limit.")
+        .category(OPENAPI_CATEGORY)
+        .subCategory(GENERAL)
+        .onQualifiers(Qualifiers.PROJECT)
+        .type(PropertyType.INTEGER)
+        .defaultValue("0")
+        .build(),
       OpenApi.class,
       OpenApiProfileDefinition.class,
       OpenApiScannerSensor.class,
@@ -19,7 +19,12 @@
  */
 package org.sonar.plugins.openapi;
 
+import java.io.File;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
 import org.sonar.api.batch.sensor.SensorContext;
+import org.sonar.plugins.openapi.api.AnalysisBudget;
 
 public class OpenApiProperties {
 
@@ -43,6 +48,73 @@ public class OpenApiProperties {
      */
     public static final String DEFAULT_V3_PATH = "openapi/v3/**";
 
+    /**
+     * Property key to find out the version of each OpenAPI file from its content, instead of from its path
+     */
+    public static final String DETECT_VERSION_KEY = "sonar.openapi.version.detect";
+
+    /**
+     * Property key to set the number of threads analyzing files
+     */
+    public static final String THREADS_KEY = "sonar.openapi.threads";
+
+    /**
+     * Default number of threads analyzing files
+     */
+    public static final int DEFAULT_THREADS = 1;
+
+    /**
+     * Property key to enable the cache of analysis results between two analyses
+     */
+    public static final String CACHE_ENABLED_KEY = "sonar.openapi.cache.enabled";
+
+    /**
+     * Property key to set the directory of the cache of analysis results
+     */
+    public static final String CACHE_PATH_KEY = "sonar.openapi.cache.path";
+
+    /**
+     * Default directory of the cache of analysis results, relative to the working directory of the scanner
+     */
+    public static final String DEFAULT_CACHE_PATH = "openapi-cache";
+
+    /**
+     * Property key to log the time spent in each phase of the analysis and in each rule
+     */
+    public static final String PROFILING_KEY = "sonar.openapi.profiling";
+
+    /**
+     * Property key to set the path of the JSON profiling report. Setting it enables profiling.
+     */
+    public static final String PROFILING_REPORT_KEY = "sonar.openapi.profiling.report";
+
+    /**
+     * Property key to set the maximum size of the files referred to by contracts kept parsed in memory, in megabytes
+     */
+    public static final String DOCUMENTS_CACHE_SIZE_KEY = "sonar.openapi.documents.cacheSize";
+
+    /**
+     * Default maximum size of the files referred to by contracts kept parsed in memory, in megabytes
+     */
+    public static final int DEFAULT_DOCUMENTS_CACHE_SIZE = 32;
+
+    /**
+     * Property key to set the time the analysis of a single file can take before it is aborted, in seconds
+     */
+    public static final String FILE_TIMEOUT_KEY = "sonar.openapi.file.timeout";
+
+    /**
+     * Property key to set the number of nodes the analysis of a single file can visit before it is aborted
+     */
+    public static final String FILE_MAX_NODES_KEY = "sonar.openapi.file.maxNodes";
+
+    /**
+     * Property key to set the maximum number of issues that each rule reports on a single file
+     */
+    public static final String MAX_ISSUES_PER_RULE_KEY = "sonar.openapi.file.maxIssuesPerRule";
+
+    private static final long MEGABYTE = 1024L * 1024L;
+
     public String[] getV2FilesPattern(SensorContext context) {
         return readPattern(context, OpenApiProperties.V2_PATH_KEY, OpenApiProperties.DEFAULT_V2_PATH);
     }
@@ -51,6 +123,89 @@ public class OpenApiProperties {
         return readPattern(context, OpenApiProperties.V3_PATH_KEY, OpenApiProperties.DEFAULT_V3_PATH);
     }
 
+    public boolean isVersionDetectionEnabled(SensorContext context) {
+        return context.config().getBoolean(DETECT_VERSION_KEY).orElse(false);
+    }
+
+    /**
+     * Reads the number of analysis threads. A value lower than 1 means one thread per available processor.
+     */
+    public int getThreads(SensorContext context) {
+        int threads = context.config().getInt(THREADS_KEY).orElse(DEFAULT_THREADS);
+        if (threads < 1) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        return threads;
+    }
+
+    /**
+     * Reads the directory of the cache of analysis results. A relative path is resolved against the base directory of
+     * the project.
+     * @return the directory, or {@code null} if the cache is disabled
+     */
+    @CheckForNull
+    public File getCacheDirectory(SensorContext context) {
+        if (!context.config().getBoolean(CACHE_ENABLED_KEY).orElse(false)) {
+            return null;
+        }
+        Optional<String> path = context.config().get(CACHE_PATH_KEY);
+        if (!path.isPresent()) {
+            return new File(context.fileSystem().workDir(), DEFAULT_CACHE_PATH);
+        }
+        File directory = new File(path.get());
+        if (!directory.isAbsolute()) {
+            directory = new File(context.fileSystem().baseDir(), path.get());
+        }
+        return directory;
+    }
+
+    /**
+     * Reads the maximum size of the files referred to by contracts kept parsed in memory.
+     * @return the size, in bytes
+     */
+    public long getDocumentsCacheSize(SensorContext context) {
+        return context.config().getInt(DOCUMENTS_CACHE_SIZE_KEY).orElse(DEFAULT_DOCUMENTS_CACHE_SIZE) * MEGABYTE;
+    }
+
+    /**
+     * Reads the limits of the analysis of each file. A missing, zero or negative limit means no limit.
+     */
+    public AnalysisBudget getFileBudget(SensorContext context) {
+        long timeoutSeconds = Math.max(0L, context.config().getLong(FILE_TIMEOUT_KEY).orElse(0L));
+        long maxNodes = Math.max(0L, context.config().getLong(FILE_MAX_NODES_KEY).orElse(0L));
+        return new AnalysisBudget(TimeUnit.SECONDS.toMillis(timeoutSeconds), maxNodes);
+    }
+
+    /**
+     * Reads the maximum number of issues that each rule reports on a single file. A missing, zero or negative value
+     * means no limit.
+     */
+    public int getMaxIssuesPerRule(SensorContext context) {
+        return Math.max(0, context.config().getInt(MAX_ISSUES_PER_RULE_KEY).orElse(0));
+    }
+
+    public boolean isProfilingEnabled(SensorContext context) {
+        return context.config().getBoolean(PROFILING_KEY).orElse(false) || context.config().hasKey(PROFILING_REPORT_KEY);
+    }
+
+    /**
+     * Reads the path of the JSON profiling report. A relative path is resolved against the base directory of the
+     * project.
+     * @return the report file, or {@code null} if no report is requested
+     */
+    @CheckForNull
+    public File getProfilingReport(SensorContext context) {
+        Optional<String> path = context.config().get(PROFILING_REPORT_KEY);
+        if (!path.isPresent()) {
+            return null;
+        }
+        File report = new File(path.get());
+        if (!report.isAbsolute()) {
+            report = new File(context.fileSystem().baseDir(), path.get());
+        }
+        return report;
+    }
+
     private String[] readPattern(SensorContext context, String pathsProperty, String defaultPath) {
         String[] pathPatterns;
         if (!context.config().hasKey(pathsProperty)) {
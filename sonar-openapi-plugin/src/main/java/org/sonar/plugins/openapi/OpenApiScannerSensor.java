@@ -19,10 +19,15 @@
  */
 package org.sonar.plugins.openapi;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.FilePredicate;
 import org.sonar.api.batch.fs.FilePredicates;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.rule.CheckFactory;
@@ -33,14 +38,20 @@ import org.sonar.api.issue.NoSonarFilter;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.openapi.AnalysisProfiler;
 import org.sonar.openapi.OpenApiAnalyzer;
 import org.sonar.openapi.OpenApiChecks;
+import org.sonar.openapi.OpenApiConfiguration;
 import org.sonar.openapi.checks.CheckList;
+import org.sonar.openapi.parser.DocumentCache;
+import org.sonar.openapi.parser.VersionDetector;
+import org.sonar.plugins.openapi.api.AnalysisBudget;
 import org.sonar.plugins.openapi.api.OpenApiCustomRuleRepository;
 
 public class OpenApiScannerSensor implements Sensor {
   private static final Logger LOGGER = Loggers.get(OpenApiScannerSensor.class);
-  private final OpenApiChecks checks;
+  private final CheckFactory checkFactory;
+  private final OpenApiCustomRuleRepository[] customRuleRepositories;
   private FileLinesContextFactory fileLinesContextFactory;
   private final NoSonarFilter noSonarFilter;
 
@@ -50,9 +61,8 @@ public class OpenApiScannerSensor implements Sensor {
 
   public OpenApiScannerSensor(CheckFactory checkFactory, FileLinesContextFactory fileLinesContextFactory, NoSonarFilter noSonarFilter, @Nullable OpenApiCustomRuleRepository[] customRuleRepositories) {
     // customRulesRepositories is injected by the context, if present
-    this.checks = OpenApiChecks.createOpenApiCheck(checkFactory)
-      .addChecks(CheckList.REPOSITORY_KEY, CheckList.getChecks())
-      .addCustomChecks(customRuleRepositories);
+    this.checkFactory = checkFactory;
+    this.customRuleRepositories = customRuleRepositories;
     this.fileLinesContextFactory = fileLinesContextFactory;
     this.noSonarFilter = noSonarFilter;
   }
@@ -69,23 +79,106 @@ public class OpenApiScannerSensor implements Sensor {
     FilePredicates p = context.fileSystem().predicates();
     OpenApiProperties openApiProperties = new OpenApiProperties();
 
-    scanFiles(context, p, openApiProperties.getV2FilesPattern(context), true);
-    scanFiles(context, p, openApiProperties.getV3FilesPattern(context), false);
+    int threads = openApiProperties.getThreads(context);
+    File cacheDirectory = openApiProperties.getCacheDirectory(context);
+    AnalysisProfiler profiler = openApiProperties.isProfilingEnabled(context) ? new AnalysisProfiler() : null;
+    AnalysisBudget budget = openApiProperties.getFileBudget(context);
+    int maxIssuesPerRule = openApiProperties.getMaxIssuesPerRule(context);
+    // shared by v2 and v3 contracts, so that a file referred to by both is only parsed once
+    DocumentCache documents = new DocumentCache(new OpenApiConfiguration(context.fileSystem().encoding(), true),
+      openApiProperties.getDocumentsCacheSize(context));
+
+    if (openApiProperties.isVersionDetectionEnabled(context)) {
+      // a single enumeration of the files, each one read up to its version only
+      List<InputFile> v2Files = new ArrayList<>();
+      List<InputFile> v3Files = new ArrayList<>();
+      List<InputFile> inputFiles = listFiles(context, p.and(p.hasType(InputFile.Type.MAIN), p.hasLanguage(OpenApi.KEY)));
+      detectVersions(inputFiles, v2Files, v3Files);
+      scanFiles(context, v2Files, true, threads, cacheDirectory, profiler, documents, budget, maxIssuesPerRule);
+      scanFiles(context, v3Files, false, threads, cacheDirectory, profiler, documents, budget, maxIssuesPerRule);
+    } else {
+      scanFiles(context, listFiles(context, p, openApiProperties.getV2FilesPattern(context)), true, threads,
+        cacheDirectory, profiler, documents, budget, maxIssuesPerRule);
+      scanFiles(context, listFiles(context, p, openApiProperties.getV3FilesPattern(context)), false, threads,
+        cacheDirectory, profiler, documents, budget, maxIssuesPerRule);
+    }
+    LOGGER.debug("{} file(s) referred to by OpenAPI contracts parsed, {} evicted from memory", documents.parsedDocuments(),
+      documents.evictions());
+
+    if (profiler != null) {
+      reportProfile(profiler, openApiProperties.getProfilingReport(context));
+    }
   }
 
   public void scanFiles(SensorContext context, FilePredicates p, String[] pathPatterns, boolean isV2) {
-    Iterable<InputFile> it = context.fileSystem().inputFiles(
-      p.and(p.hasType(InputFile.Type.MAIN),
-        p.hasLanguage(OpenApi.KEY),
-        p.matchesPathPatterns(pathPatterns)));
+    scanFiles(context, listFiles(context, p, pathPatterns), isV2, 1, null, null, null, AnalysisBudget.UNLIMITED, 0);
+  }
+
+  private static List<InputFile> listFiles(SensorContext context, FilePredicates p, String[] pathPatterns) {
+    return listFiles(context, p.and(p.hasType(InputFile.Type.MAIN),
+      p.hasLanguage(OpenApi.KEY),
+      p.matchesPathPatterns(pathPatterns)));
+  }
+
+  private static List<InputFile> listFiles(SensorContext context, FilePredicate predicate) {
     List<InputFile> list = new ArrayList<>();
-    it.forEach(list::add);
-    List<InputFile> inputFiles = Collections.unmodifiableList(list);
+    context.fileSystem().inputFiles(predicate).forEach(list::add);
+    return Collections.unmodifiableList(list);
+  }
 
+  /**
+   * Dispatches the files according to the version they declare. The files that declare none, or that cannot be read,
+   * are not OpenAPI contracts and are skipped.
+   */
+  private static void detectVersions(List<InputFile> inputFiles, List<InputFile> v2Files, List<InputFile> v3Files) {
+    for (InputFile inputFile : inputFiles) {
+      VersionDetector.Version version;
+      try (Reader reader = new InputStreamReader(inputFile.inputStream(), inputFile.charset())) {
+        version = VersionDetector.detect(reader);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to read " + inputFile + " to find out its OpenAPI version: " + e.getMessage());
+        continue;
+      }
+      if (version == VersionDetector.Version.V2) {
+        v2Files.add(inputFile);
+      } else if (version == VersionDetector.Version.V3) {
+        v3Files.add(inputFile);
+      } else {
+        LOGGER.debug("{} declares no OpenAPI version, skipped", inputFile);
+      }
+    }
+  }
+
+  private void scanFiles(SensorContext context, List<InputFile> inputFiles, boolean isV2, int threads,
+    @Nullable File cacheDirectory, @Nullable AnalysisProfiler profiler, @Nullable DocumentCache documents,
+    AnalysisBudget budget, int maxIssuesPerRule) {
     if (!inputFiles.isEmpty()) {
-      OpenApiAnalyzer scanner = new OpenApiAnalyzer(context, checks, fileLinesContextFactory, noSonarFilter, inputFiles, isV2);
+      OpenApiAnalyzer scanner = new OpenApiAnalyzer(context, this::createChecks, fileLinesContextFactory, noSonarFilter, inputFiles, isV2, threads);
+      scanner.setCacheDirectory(cacheDirectory);
+      scanner.setProfiler(profiler);
+      scanner.setDocuments(documents);
+      scanner.setBudget(budget);
+      scanner.setMaxIssuesPerRule(maxIssuesPerRule);
       LOGGER.info("OpenAPI Scanner called for the following files: {}.", inputFiles);
       scanner.scanFiles();
     }
   }
+
+  private static void reportProfile(AnalysisProfiler profiler, @Nullable File report) {
+    profiler.log(LOGGER);
+    if (report != null) {
+      try {
+        profiler.writeJson(report.toPath());
+        LOGGER.info("OpenAPI analysis profile written to {}", report);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to write the OpenAPI analysis profile to " + report, e);
+      }
+    }
+  }
+
+  private OpenApiChecks createChecks() {
+    return OpenApiChecks.createOpenApiCheck(checkFactory)
+      .addChecks(CheckList.REPOSITORY_KEY, CheckList.getChecks())
+      .addCustomChecks(customRuleRepositories);
+  }
 }
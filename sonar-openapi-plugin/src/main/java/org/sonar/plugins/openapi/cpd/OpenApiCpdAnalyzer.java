@@ -23,9 +23,14 @@ import com.sonar.sslr.api.AstNode;
 import com.sonar.sslr.api.GenericTokenType;
 import com.sonar.sslr.api.Token;
 import com.sonar.sslr.api.TokenType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.annotation.Nullable;
 import org.sonar.api.batch.fs.InputFile;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.cpd.NewCpdTokens;
+import org.sonar.plugins.openapi.api.AnalysisBudget;
 import org.sonar.plugins.openapi.api.IssueLocation;
 import org.sonar.plugins.openapi.api.OpenApiVisitorContext;
 
@@ -41,28 +46,105 @@ public class OpenApiCpdAnalyzer {
   }
 
   public void pushCpdTokens(InputFile inputFile, OpenApiVisitorContext visitorContext) {
+    if (visitorContext.rootTree() != null) {
+      pushCpdTokens(inputFile, collectCpdTokens(visitorContext));
+    }
+  }
+
+  /**
+   * Saves tokens previously extracted with {@link #collectCpdTokens(OpenApiVisitorContext)}.
+   * @param inputFile the file the tokens belong to
+   * @param tokens the tokens to save
+   */
+  public void pushCpdTokens(InputFile inputFile, List<CpdToken> tokens) {
+    NewCpdTokens cpdTokens = context.newCpdTokens().onFile(inputFile);
+    for (CpdToken token : tokens) {
+      cpdTokens.addToken(token.startLine, token.startLineOffset, token.endLine, token.endLineOffset, token.image);
+    }
+    cpdTokens.save();
+  }
+
+  /**
+   * Extracts the tokens to feed to the CPD algorithm, without touching the sensor context.
+   * @param visitorContext the file to extract tokens from
+   * @return the list of tokens, empty if the file could not be parsed
+   */
+  public static List<CpdToken> collectCpdTokens(OpenApiVisitorContext visitorContext) {
+    return collectCpdTokens(visitorContext, null);
+  }
+
+  /**
+   * Extracts the tokens to feed to the CPD algorithm, each token spending one node of the budget of the file.
+   * @param visitorContext the file to extract tokens from
+   * @param budget the budget left to the file, or {@code null} for no limit
+   * @return the list of tokens, empty if the file could not be parsed
+   * @throws org.sonar.plugins.openapi.api.BudgetExceededException if the file has more tokens than its budget allows
+   */
+  public static List<CpdToken> collectCpdTokens(OpenApiVisitorContext visitorContext, @Nullable AnalysisBudget.Meter budget) {
     AstNode root = visitorContext.rootTree();
-    if (root != null) {
-      NewCpdTokens cpdTokens = context.newCpdTokens().onFile(inputFile);
-      for (Token token : root.getTokens()) {
-        if (!isIgnoredType(token.getType())) {
-          IssueLocation.TokenLocation location = new IssueLocation.TokenLocation(token);
-          if (location.startLine() < location.endLine() || location.startLineOffset() < location.endLineOffset()) {
-            // Ignore blank tokens
-            cpdTokens.addToken(location.startLine(), location.startLineOffset(), location.endLine(), location.endLineOffset(), getImage(token));
-          }
+    if (root == null) {
+      return Collections.emptyList();
+    }
+    List<CpdToken> tokens = new ArrayList<>();
+    for (Token token : root.getTokens()) {
+      if (budget != null) {
+        budget.spend();
+      }
+      if (!isIgnoredType(token.getType())) {
+        IssueLocation.TokenLocation location = new IssueLocation.TokenLocation(token);
+        if (location.startLine() < location.endLine() || location.startLineOffset() < location.endLineOffset()) {
+          // Ignore blank tokens
+          tokens.add(new CpdToken(location.startLine(), location.startLineOffset(), location.endLine(), location.endLineOffset(), getImage(token)));
         }
       }
-      cpdTokens.save();
     }
+    return tokens;
   }
 
-  private boolean isIgnoredType(TokenType type) {
+  private static boolean isIgnoredType(TokenType type) {
     return type.equals(GenericTokenType.EOF);
   }
 
-  private String getImage(Token token) {
+  private static String getImage(Token token) {
     return token.getValue();
   }
 
+  /**
+   * A token extracted for duplication detection.
+   */
+  public static class CpdToken {
+    private final int startLine;
+    private final int startLineOffset;
+    private final int endLine;
+    private final int endLineOffset;
+    private final String image;
+
+    public CpdToken(int startLine, int startLineOffset, int endLine, int endLineOffset, String image) {
+      this.startLine = startLine;
+      this.startLineOffset = startLineOffset;
+      this.endLine = endLine;
+      this.endLineOffset = endLineOffset;
+      this.image = image;
+    }
+
+    public int startLine() {
+      return startLine;
+    }
+
+    public int startLineOffset() {
+      return startLineOffset;
+    }
+
+    public int endLine() {
+      return endLine;
+    }
+
+    public int endLineOffset() {
+      return endLineOffset;
+    }
+
+    public String image() {
+      return image;
+    }
+  }
 }
@@ -20,14 +20,33 @@
 package org.sonar.plugins.openapi;
 
 import com.google.common.collect.Iterables;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.Before;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.sonar.api.batch.fs.InputFile;
+import org.sonar.api.batch.fs.TextRange;
 import org.sonar.api.batch.fs.internal.DefaultInputFile;
 import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.rule.ActiveRules;
@@ -44,20 +63,29 @@ import org.sonar.api.measures.FileLinesContext;
 import org.sonar.api.measures.FileLinesContextFactory;
 import org.sonar.api.rule.RuleKey;
 import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.check.Rule;
 import org.sonar.openapi.checks.CheckList;
 import org.sonar.openapi.checks.ParsingErrorCheck;
 import org.sonar.openapi.checks.PathMaskeradingCheck;
 import org.sonar.openapi.metrics.OpenApiMetrics;
+import org.sonar.plugins.openapi.api.OpenApiCheck;
+import org.sonar.plugins.openapi.api.OpenApiCustomRuleRepository;
+import org.sonar.sslr.yaml.grammar.JsonNode;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.groups.Tuple.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class OpenApiScannerSensorTest {
+  private static final String CUSTOM_REPOSITORY_KEY = "custom";
   private final Path baseDir = Paths.get("src/test/resources/sensor").toAbsolutePath();
   @org.junit.Rule
   public LogTester logTester = new LogTester();
+  @org.junit.Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
   private SensorContextTester context;
   private ActiveRules activeRules;
 
@@ -130,6 +158,327 @@ public class OpenApiScannerSensorTest {
         );
   }
 
+  @Test
+  public void limits_issues_per_rule_and_file() {
+    inputFile("parse-error.yaml");
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, ParsingErrorCheck.CHECK_KEY))
+      .activate()
+      .build();
+    context.settings().setProperty(OpenApiProperties.MAX_ISSUES_PER_RULE_KEY, "1");
+    sensor().execute(context);
+
+    assertThat(context.allIssues()).hasSize(2);
+    assertThat(context.allIssues().stream()
+      .filter(issue -> issue.primaryLocation().textRange() == null)
+      .map(issue -> issue.primaryLocation().message())
+      .collect(Collectors.toList()))
+      .containsExactly("1 more issues of this rule are not reported, only the first 1 of a file are.");
+  }
+
+  @Test
+  public void parallel_analysis_saves_same_results_in_same_order() {
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, PathMaskeradingCheck.CHECK_KEY))
+      .activate()
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, ParsingErrorCheck.CHECK_KEY))
+      .activate()
+      .build();
+    inputFile("file1.yaml");
+    inputFile("cpd.yaml");
+    inputFile("parse-error.yaml");
+    sensor().execute(context);
+    List<String> sequentialIssues = describeIssues();
+    List<String> sequentialErrors = describeErrors();
+
+    init();
+    context.settings().setProperty(OpenApiProperties.THREADS_KEY, "3");
+    inputFile("file1.yaml");
+    inputFile("cpd.yaml");
+    inputFile("parse-error.yaml");
+    sensor().execute(context);
+
+    assertThat(describeIssues()).isNotEmpty().isEqualTo(sequentialIssues);
+    assertThat(describeErrors()).isNotEmpty().isEqualTo(sequentialErrors);
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC).value()).isEqualTo(29);
+    assertThat(context.measure("moduleKey:cpd.yaml", CoreMetrics.NCLOC).value()).isNotNull();
+  }
+
+  @Test
+  public void saves_results_in_file_order_on_several_threads() {
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty(OpenApiProperties.THREADS_KEY, "2");
+    inputFile("file1.yaml");
+    inputFile("cpd.yaml");
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(Mockito.any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+    new OpenApiScannerSensor(new CheckFactory(activeRules), fileLinesContextFactory, new NoSonarFilter()).execute(context);
+
+    InOrder inOrder = Mockito.inOrder(fileLinesContextFactory);
+    for (InputFile inputFile : context.fileSystem().inputFiles(context.fileSystem().predicates().all())) {
+      inOrder.verify(fileLinesContextFactory).createFor(inputFile);
+    }
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC).value()).isEqualTo(29);
+  }
+
+  @Test
+  public void analyzes_next_file_while_saving_on_a_single_thread() {
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CUSTOM_REPOSITORY_KEY, AnalyzedFilesCheck.CHECK_KEY))
+      .activate()
+      .build();
+    inputFile("file1.yaml");
+    inputFile("cpd.yaml");
+    AnalyzedFilesCheck.reset();
+    AtomicBoolean nextFileAnalyzed = new AtomicBoolean();
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(Mockito.any(InputFile.class))).thenAnswer(invocation -> {
+      InputFile inputFile = (InputFile) invocation.getArguments()[0];
+      if ("file1.yaml".equals(inputFile.filename())) {
+        // never reached if the analysis of the second file waits for the first one to be saved
+        nextFileAnalyzed.set(AnalyzedFilesCheck.cpdAnalyzed.await(5, TimeUnit.SECONDS));
+      }
+      return mock(FileLinesContext.class);
+    });
+    sensor(AnalyzedFilesCheck.class, fileLinesContextFactory).execute(context);
+
+    assertThat(nextFileAnalyzed.get()).isTrue();
+    assertThat(AnalyzedFilesCheck.ANALYZING_THREADS).containsOnly("openapi-analyzer-1");
+    InOrder inOrder = Mockito.inOrder(fileLinesContextFactory);
+    for (InputFile inputFile : context.fileSystem().inputFiles(context.fileSystem().predicates().all())) {
+      inOrder.verify(fileLinesContextFactory).createFor(inputFile);
+    }
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC).value()).isEqualTo(29);
+  }
+
+  @Test
+  public void keeps_saved_results_when_a_thread_fails() throws InterruptedException {
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CUSTOM_REPOSITORY_KEY, FailingCheck.CHECK_KEY))
+      .activate()
+      .build();
+    context.settings().setProperty(OpenApiProperties.THREADS_KEY, "2");
+    inputFile("file1.yaml");
+    inputFile("cpd.yaml");
+    try {
+      sensor(FailingCheck.class).execute(context);
+      fail("The failure of the check should have been rethrown");
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("cpd.yaml");
+    }
+
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC).value()).isEqualTo(29);
+    assertThat(context.measure("moduleKey:cpd.yaml", CoreMetrics.NCLOC)).isNull();
+    assertThat(remainingAnalyzerThreads()).isEmpty();
+  }
+
+  @Test
+  public void reports_issues_of_referenced_files_on_the_references() {
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, "DefinedResponse"))
+      .activate()
+      .build();
+    inputFile("external/contract.yaml");
+    sensor().execute(context);
+
+    // the response without model is at line 23 of the referenced file, beyond the end of the contract
+    assertThat(describeIssues()).containsExactly("DefinedResponse moduleKey:external/contract.yaml 10");
+    assertThat(context.allAnalysisErrors()).isEmpty();
+  }
+
+  @Test
+  public void cache_replays_results_of_unchanged_files() throws Exception {
+    File cacheDirectory = temporaryFolder.newFolder();
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, PathMaskeradingCheck.CHECK_KEY))
+      .activate()
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, ParsingErrorCheck.CHECK_KEY))
+      .activate()
+      .build();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    inputFile("parse-error.yaml");
+    sensor().execute(context);
+    List<String> analyzedIssues = describeIssues();
+    List<String> analyzedErrors = describeErrors();
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("0/2 OpenAPI file(s) loaded from the analysis cache");
+
+    init();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    inputFile("parse-error.yaml");
+    sensor().execute(context);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("2/2 OpenAPI file(s) loaded from the analysis cache");
+    assertThat(describeIssues()).isNotEmpty().isEqualTo(analyzedIssues);
+    assertThat(describeErrors()).isNotEmpty().isEqualTo(analyzedErrors);
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC).value()).isEqualTo(29);
+    assertThat(context.measure("moduleKey:file1.yaml", OpenApiMetrics.PATHS_COUNT).value()).isEqualTo(2);
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.COMPLEXITY).value()).isEqualTo(8);
+    assertThat(context.cpdTokens("moduleKey:file1.yaml")).isNotEmpty();
+  }
+
+  @Test
+  public void cache_ignores_results_of_another_version_of_a_check() throws Exception {
+    File cacheDirectory = temporaryFolder.newFolder();
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CUSTOM_REPOSITORY_KEY, VersionedCheck.CHECK_KEY))
+      .activate()
+      .build();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    sensor(VersionedCheck.class).execute(context);
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().message()).containsExactly("version 1");
+
+    // same class, same rule key, other code
+    Class<?> upgradedCheck = loadVersionedCheck("version 2");
+    init();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    sensor(upgradedCheck).execute(context);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("0/1 OpenAPI file(s) loaded from the analysis cache");
+    assertThat(context.allIssues()).extracting(issue -> issue.primaryLocation().message()).containsExactly("version 2");
+  }
+
+  @Test
+  public void cache_keeps_identical_contracts_at_different_locations_apart() throws Exception {
+    File cacheDirectory = temporaryFolder.newFolder();
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("a/copy.yaml");
+    inputFile("b/copy.yaml");
+    sensor().execute(context);
+
+    // their references could point to different files
+    assertThat(cacheEntries(cacheDirectory)).hasSize(2);
+  }
+
+  @Test
+  public void cache_ignores_corrupt_entries() throws Exception {
+    File cacheDirectory = temporaryFolder.newFolder();
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    sensor().execute(context);
+    for (Path entry : cacheEntries(cacheDirectory)) {
+      byte[] header = Arrays.copyOf(Files.readAllBytes(entry), Integer.BYTES);
+      try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(entry))) {
+        out.write(header);
+        // one referenced file, whose path would be 2GB long
+        out.writeInt(1);
+        out.writeInt(Integer.MAX_VALUE);
+      }
+    }
+
+    init();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    sensor().execute(context);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("0/1 OpenAPI file(s) loaded from the analysis cache");
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC).value()).isEqualTo(29);
+  }
+
+  @Test
+  public void cache_is_invalidated_by_rule_changes() throws Exception {
+    File cacheDirectory = temporaryFolder.newFolder();
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    sensor().execute(context);
+    assertThat(context.allIssues()).isEmpty();
+
+    init();
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, PathMaskeradingCheck.CHECK_KEY))
+      .activate()
+      .build();
+    context.settings().setProperty(OpenApiProperties.CACHE_ENABLED_KEY, "true");
+    context.settings().setProperty(OpenApiProperties.CACHE_PATH_KEY, cacheDirectory.getAbsolutePath());
+    inputFile("file1.yaml");
+    sensor().execute(context);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("0/1 OpenAPI file(s) loaded from the analysis cache");
+    assertThat(context.allIssues()).hasSize(1);
+  }
+
+  @Test
+  public void profiles_phases_and_rules() throws Exception {
+    File report = new File(temporaryFolder.newFolder(), "profile.json");
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, PathMaskeradingCheck.CHECK_KEY))
+      .activate()
+      .build();
+    context.settings().setProperty(OpenApiProperties.PROFILING_REPORT_KEY, report.getAbsolutePath());
+    inputFile("file1.yaml");
+    sensor().execute(context);
+
+    assertThat(logTester.logs(LoggerLevel.INFO)).contains("OpenAPI analysis profile (summed over all threads):");
+    assertThat(String.join("\n", logTester.logs(LoggerLevel.INFO))).contains("rule openapi:PathMaskerading");
+    String json = new String(Files.readAllBytes(report.toPath()), StandardCharsets.UTF_8);
+    assertThat(json)
+      .contains("\"name\": \"parse\"")
+      .contains("\"name\": \"metrics\"")
+      .contains("\"name\": \"rule openapi:PathMaskerading\"")
+      .contains("\"name\": \"save issues\"");
+  }
+
+  @Test
+  public void detects_versions_from_content() {
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty(OpenApiProperties.DETECT_VERSION_KEY, "true");
+    // the path patterns are ignored
+    context.settings().setProperty(OpenApiProperties.V2_PATH_KEY, "none");
+    context.settings().setProperty(OpenApiProperties.V3_PATH_KEY, "none");
+    inputFile("file1.yaml");
+    inputFile("swagger.json");
+    inputFile("not-a-contract.yaml");
+    sensor().execute(context);
+
+    assertThat(context.measure("moduleKey:file1.yaml", OpenApiMetrics.PATHS_COUNT).value()).isEqualTo(2);
+    assertThat(context.measure("moduleKey:swagger.json", OpenApiMetrics.PATHS_COUNT).value()).isEqualTo(1);
+    assertThat(context.measure("moduleKey:not-a-contract.yaml", CoreMetrics.NCLOC)).isNull();
+    assertThat(context.allAnalysisErrors()).isEmpty();
+  }
+
+  @Test
+  public void aborts_analysis_of_files_over_budget() {
+    inputFile("file1.yaml");
+    activeRules = (new ActiveRulesBuilder())
+      .create(RuleKey.of(CheckList.REPOSITORY_KEY, "PathMaskerading"))
+      .activate()
+      .build();
+    context.settings().setProperty("sonar.openapi.file.maxNodes", "10");
+    sensor().execute(context);
+
+    assertThat(context.allIssues()).isEmpty();
+    assertThat(describeErrors()).containsExactly("file1.yaml 1 Analysis budget exceeded: more than 10 nodes visited");
+    // the budget is already exceeded while collecting the suppressions
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC)).isNull();
+  }
+
+  @Test
+  public void meters_metrics_of_giant_examples() {
+    inputFile("file1.yaml");
+    inputFile("giant-example.yaml");
+    activeRules = (new ActiveRulesBuilder()).build();
+    context.settings().setProperty("sonar.openapi.file.maxNodes", "3000");
+    sensor().execute(context);
+
+    assertThat(describeErrors()).containsExactly("giant-example.yaml 1 Analysis budget exceeded: more than 3000 nodes visited");
+    assertThat(context.measure("moduleKey:giant-example.yaml", CoreMetrics.NCLOC)).isNull();
+    assertThat(context.measure("moduleKey:file1.yaml", CoreMetrics.NCLOC).value()).isEqualTo(29);
+  }
+
   @Test
   public void cancelled_analysis() {
     InputFile inputFile = inputFile("file1.yaml");
@@ -139,6 +488,103 @@ public class OpenApiScannerSensorTest {
     assertThat(context.allAnalysisErrors()).isEmpty();
   }
 
+  private List<String> describeIssues() {
+    return context.allIssues().stream()
+      .map(issue -> issue.ruleKey().rule() + " " + issue.primaryLocation().inputComponent().key() + " " + startLine(issue.primaryLocation().textRange()))
+      .collect(Collectors.toList());
+  }
+
+  private List<String> describeErrors() {
+    return context.allAnalysisErrors().stream()
+      .map(error -> error.inputFile().filename() + " " + error.location().line() + " " + error.message())
+      .collect(Collectors.toList());
+  }
+
+  private static List<Path> cacheEntries(File cacheDirectory) throws IOException {
+    try (Stream<Path> paths = Files.walk(cacheDirectory.toPath())) {
+      return paths.filter(Files::isRegularFile).collect(Collectors.toList());
+    }
+  }
+
+  private static int startLine(TextRange range) {
+    return range == null ? 0 : range.start().line();
+  }
+
+  /**
+   * @return the names of the threads of the analyzers still alive, once they had a few seconds to end
+   */
+  private static List<String> remainingAnalyzerThreads() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    List<String> threads;
+    do {
+      threads = Thread.getAllStackTraces().keySet().stream()
+        .filter(Thread::isAlive)
+        .map(Thread::getName)
+        .filter(name -> name.startsWith("openapi-analyzer-"))
+        .collect(Collectors.toList());
+      if (threads.isEmpty()) {
+        break;
+      }
+      Thread.sleep(10);
+    } while (System.nanoTime() - deadline < 0);
+    return threads;
+  }
+
+  /**
+   * @return a copy of {@link VersionedCheck} whose issue message is {@code message}, loaded by a class loader of its own
+   */
+  private static Class<?> loadVersionedCheck(String message) throws IOException, ClassNotFoundException {
+    String className = VersionedCheck.class.getName();
+    String resource = className.replace('.', '/') + ".class";
+    byte[] bytes;
+    try (InputStream in = VersionedCheck.class.getClassLoader().getResourceAsStream(resource)) {
+      bytes = ByteStreams.toByteArray(in);
+    }
+    // the message is a constant of the class, of the same length as the original one
+    String classFile = new String(bytes, StandardCharsets.ISO_8859_1).replace(VersionedCheck.MESSAGE, message);
+    byte[] upgraded = classFile.getBytes(StandardCharsets.ISO_8859_1);
+    ClassLoader classLoader = new ClassLoader(OpenApiScannerSensorTest.class.getClassLoader()) {
+      @Override
+      protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+        if (!name.equals(className)) {
+          return super.loadClass(name, resolve);
+        }
+        synchronized (getClassLoadingLock(name)) {
+          Class<?> type = findLoadedClass(name);
+          return type != null ? type : defineClass(name, upgraded, 0, upgraded.length);
+        }
+      }
+
+      @Override
+      public InputStream getResourceAsStream(String name) {
+        return name.equals(resource) ? new ByteArrayInputStream(upgraded) : super.getResourceAsStream(name);
+      }
+    };
+    return classLoader.loadClass(className);
+  }
+
+  private OpenApiScannerSensor sensor(Class<?> customCheck) {
+    FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
+    when(fileLinesContextFactory.createFor(Mockito.any(InputFile.class))).thenReturn(mock(FileLinesContext.class));
+    return sensor(customCheck, fileLinesContextFactory);
+  }
+
+  private OpenApiScannerSensor sensor(Class<?> customCheck, FileLinesContextFactory fileLinesContextFactory) {
+    OpenApiCustomRuleRepository repository = new OpenApiCustomRuleRepository() {
+      @Override
+      public String repositoryKey() {
+        return CUSTOM_REPOSITORY_KEY;
+      }
+
+      @Override
+      public List<Class> checkClasses() {
+        return Collections.singletonList(customCheck);
+      }
+    };
+    return new OpenApiScannerSensor(new CheckFactory(activeRules), fileLinesContextFactory, new NoSonarFilter(),
+      new OpenApiCustomRuleRepository[] {repository});
+  }
+
   private OpenApiScannerSensor sensor() {
     CheckFactory checkFactory = new CheckFactory(activeRules);
     FileLinesContextFactory fileLinesContextFactory = mock(FileLinesContextFactory.class);
@@ -158,4 +604,48 @@ public class OpenApiScannerSensorTest {
     context.fileSystem().add(inputFile);
     return inputFile;
   }
+
+  @Rule(key = FailingCheck.CHECK_KEY)
+  public static class FailingCheck extends OpenApiCheck {
+    static final String CHECK_KEY = "failing";
+
+    @Override
+    protected void visitFile(JsonNode root) {
+      String fileName = getContext().openApiFile().fileName();
+      if ("cpd.yaml".equals(fileName)) {
+        throw new IllegalStateException(fileName);
+      }
+    }
+  }
+
+  @Rule(key = AnalyzedFilesCheck.CHECK_KEY)
+  public static class AnalyzedFilesCheck extends OpenApiCheck {
+    static final String CHECK_KEY = "analyzed";
+    static final Set<String> ANALYZING_THREADS = ConcurrentHashMap.newKeySet();
+    static CountDownLatch cpdAnalyzed;
+
+    static void reset() {
+      ANALYZING_THREADS.clear();
+      cpdAnalyzed = new CountDownLatch(1);
+    }
+
+    @Override
+    protected void visitFile(JsonNode root) {
+      ANALYZING_THREADS.add(Thread.currentThread().getName());
+      if ("cpd.yaml".equals(getContext().openApiFile().fileName())) {
+        cpdAnalyzed.countDown();
+      }
+    }
+  }
+
+  @Rule(key = VersionedCheck.CHECK_KEY)
+  public static class VersionedCheck extends OpenApiCheck {
+    static final String CHECK_KEY = "versioned";
+    static final String MESSAGE = "version 1";
+
+    @Override
+    protected void visitFile(JsonNode root) {
+      addLineIssue(MESSAGE, 1);
+    }
+  }
 }